@@ -0,0 +1,78 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.technischools.marcel.OrderManagerApp;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders inserted per second on H2, 500 orders with two products each per invocation. {@code createOrder_OneByOne}
+ * is the path {@code POST /orders} takes, one transaction per order. {@code createOrders} is {@code POST /orders/batch};
+ * with {@code jdbcBatchSize=1} Hibernate sends every insert on its own, with 50 it groups them into JDBC batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBatchInsertBenchmark {
+    private static final int ORDERS_PER_INVOCATION = 500;
+
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagerApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:batch-insert;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                        "orders.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_INVOCATION)
+    public List<OrderBatchResult> createOrders() {
+        return orderService.createOrders(newOrders());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_INVOCATION)
+    public long createOrder_OneByOne() {
+        long lastId = 0;
+        for (Order order : newOrders()) {
+            lastId = orderService.createOrder(order).getId();
+        }
+        return lastId;
+    }
+
+    private static List<Order> newOrders() {
+        List<Order> orders = new ArrayList<>(ORDERS_PER_INVOCATION);
+        for (int i = 0; i < ORDERS_PER_INVOCATION; i++) {
+            orders.add(OrderServiceBenchmark.newOrder(i % 5000, "product-" + (i % 997), "product-" + (i % 13)));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,154 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.ColumnarOrderRepository;
+import com.technischools.marcel.order.repository.OrderJournal;
+import com.technischools.marcel.order.repository.OrderJournalProperties;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The columnar store with the order journal:
+ * <ul>
+ *     <li>{@code append}: {@code save} throughput from {@value #WRITERS} threads, each save waits for its fsync, so
+ *     this shows how well group commit batches concurrent writers,</li>
+ *     <li>{@code recover}: restart time for {@value #ORDER_COUNT} orders, replayed from the journal segments only
+ *     or from a snapshot.</li>
+ * </ul>
+ * Results depend on the disk far more than on the CPU. The journal goes to a temporary directory under
+ * {@code -Djournal.benchmark.directory} (the system temp directory by default, which may be tmpfs), and each trial
+ * prints the file store it ended up on.
+ */
+@Fork(1)
+public class OrderJournalBenchmark {
+    static final int WRITERS = 8;
+    static final int ORDER_COUNT = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+        Path directory;
+        OrderJournal journal;
+        ColumnarOrderRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = createDirectory();
+            journal = open(directory, Long.MAX_VALUE);
+            repository = repository(journal);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            journal.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovering {
+        @Param({"journal", "snapshot"})
+        String source;
+
+        Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            directory = createDirectory();
+            // with "snapshot" the writer snapshots once all orders are written
+            OrderJournal journal = open(directory, "snapshot".equals(source) ? ORDER_COUNT : Long.MAX_VALUE);
+            ColumnarOrderRepository repository = repository(journal);
+            for (int i = 0; i < ORDER_COUNT; i += BATCH_SIZE) {
+                repository.saveAll(orders(i, BATCH_SIZE));
+            }
+            if ("snapshot".equals(source)) {
+                awaitSnapshot(directory);
+            }
+            journal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    @Threads(WRITERS)
+    public Object append(Appending state) {
+        return state.repository.save(OrderServiceBenchmark.newOrder(42, "product-1", "product-2"));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public long recover(Recovering state) throws InterruptedException {
+        OrderJournal journal = open(state.directory, Long.MAX_VALUE);
+        try {
+            return repository(journal).count();
+        } finally {
+            journal.close();
+        }
+    }
+
+    static Path createDirectory() throws IOException {
+        String parent = System.getProperty("journal.benchmark.directory");
+        Path directory = parent == null ? Files.createTempDirectory("order-journal")
+                : Files.createTempDirectory(Files.createDirectories(Path.of(parent)), "order-journal");
+        FileStore store = Files.getFileStore(directory);
+        System.out.printf("%nJournal directory %s on %s (%s)%n", directory, store.name(), store.type());
+        return directory;
+    }
+
+    static OrderJournal open(Path directory, long snapshotEveryRecords) {
+        return new OrderJournal(new OrderJournalProperties(directory, snapshotEveryRecords, Duration.ofDays(1), 4096));
+    }
+
+    static ColumnarOrderRepository repository(OrderJournal journal) {
+        return new ColumnarOrderRepository(
+                new StaticListableBeanFactory(Map.of("orderJournal", journal)).getBeanProvider(OrderJournal.class));
+    }
+
+    static void awaitSnapshot(Path directory) throws IOException, InterruptedException {
+        while (true) {
+            try (Stream<Path> files = Files.list(directory)) {
+                if (files.anyMatch(file -> file.getFileName().toString().endsWith(".bin"))) {
+                    return;
+                }
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    static List<Order> orders(int first, int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            Order order = OrderServiceBenchmark.newOrder(i % 1000, "product-" + (i % 997), "product-" + (i % 13));
+            order.setStatus(STATUSES[i % STATUSES.length]);
+            order.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i));
+            orders.add(order);
+        }
+        return orders;
+    }
+}
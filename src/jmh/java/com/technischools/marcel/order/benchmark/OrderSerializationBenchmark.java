@@ -0,0 +1,94 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.technischools.marcel.order.controller.OrderFormatConfiguration;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding and decoding of order lists as the list endpoints produce them, in each response format: JSON with
+ * Spring's default mapper settings, gzipped JSON, CBOR and Smile as configured in {@link OrderFormatConfiguration}.
+ * The encoded size of each payload is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int orderCount;
+
+    @Param({"json", "json-gzip", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private boolean gzip;
+    private List<Order> orders;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper mapper = switch (format) {
+            case "json", "json-gzip" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> OrderFormatConfiguration.cborMapper(Jackson2ObjectMapperBuilder.json());
+            case "smile" -> OrderFormatConfiguration.smileMapper(Jackson2ObjectMapperBuilder.json());
+            default -> throw new IllegalArgumentException(format);
+        };
+        TypeReference<List<Order>> type = new TypeReference<>() {};
+        writer = mapper.writerFor(type);
+        reader = mapper.readerFor(type);
+        gzip = format.equals("json-gzip");
+        OrderStatus[] statuses = OrderStatus.values();
+        orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            Order order = OrderServiceBenchmark.newOrder(i % 5000, "product-" + (i % 997), "product-" + (i % 13));
+            order.setId((long) i + 1);
+            order.setStatus(statuses[i % statuses.length]);
+            order.setCreatedAt(LocalDateTime.of(2024, 3, 31, 12, 30).minusMinutes(i));
+            orders.add(order);
+        }
+        encoded = serializeOrders();
+        System.out.printf("%n%s, %d orders: %d bytes%n", format, orderCount, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() throws IOException {
+        if (!gzip) {
+            return writer.writeValueAsBytes(orders);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            writer.writeValue(out, orders);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Order> deserializeOrders() throws IOException {
+        if (!gzip) {
+            return reader.readValue(encoded);
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+            return reader.readValue(in);
+        }
+    }
+}
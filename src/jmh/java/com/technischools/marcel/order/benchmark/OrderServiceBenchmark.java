@@ -0,0 +1,104 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.technischools.marcel.OrderManagerApp;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level read and write paths against a seeded in-memory H2 database, with the id cache disabled so every
+ * call reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    private int orderCount;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagerApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "orders.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        orderService = context.getBean(OrderService.class);
+        seed(orderService, orderCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Order> getOrders_All() {
+        return orderService.getOrders(Optional.empty(), Optional.empty());
+    }
+
+    @Benchmark
+    public List<Order> getOrders_ByStatus() {
+        return orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.W_TRAKCIE));
+    }
+
+    @Benchmark
+    public List<Order> getOrders_Page() {
+        return orderService.getOrders(Optional.of(OrderStatus.W_TRAKCIE), Optional.of((long) orderCount / 2),
+                OrderService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void createOrder(Blackhole blackhole) {
+        // the table grows by a few thousand rows per iteration, small next to the seeded data
+        blackhole.consume(orderService.createOrder(newOrder(1001, "product-1", "product-2")));
+    }
+
+    static void seed(OrderService orderService, int orderCount) {
+        OrderStatus[] statuses = OrderStatus.values();
+        List<Order> batch = new ArrayList<>(OrderService.MAX_BATCH_SIZE);
+        for (int i = 0; i < orderCount; i++) {
+            Order order = newOrder(i % 5000, "product-" + (i % 997), "product-" + (i % 13));
+            order.setStatus(statuses[i % statuses.length]);
+            order.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            batch.add(order);
+            if (batch.size() == OrderService.MAX_BATCH_SIZE) {
+                orderService.createOrders(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            orderService.createOrders(batch);
+        }
+    }
+
+    static Order newOrder(int customerId, String... products) {
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        order.setProducts(new ArrayList<>(List.of(products)));
+        return order;
+    }
+}
@@ -0,0 +1,32 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.technischools.marcel.order.model.OrderStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Status parsing for request parameters, including the invalid-input path that goes through an exception.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderStatusBenchmark {
+
+    @Param({"W_TRAKCIE", "INVALID"})
+    private String status;
+
+    @Benchmark
+    public Optional<OrderStatus> toValidStatus() {
+        return OrderStatus.toValidStatus(status);
+    }
+
+    @Benchmark
+    public Optional<OrderStatus> toValidStatus_Null() {
+        return OrderStatus.toValidStatus(null);
+    }
+}
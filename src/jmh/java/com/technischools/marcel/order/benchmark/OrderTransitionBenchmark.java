@@ -0,0 +1,106 @@
+package com.technischools.marcel.order.benchmark;
+
+import com.technischools.marcel.OrderManagerApp;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.StatusTransitionResult;
+import com.technischools.marcel.order.service.OrderService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contended single-order status changes: {@value #THREADS} threads race for each order, one wins and the others
+ * see a conflict. Compares the compare-and-set transition with the read-lock-write alternative using
+ * {@code SELECT ... FOR UPDATE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(OrderTransitionBenchmark.THREADS)
+@Fork(1)
+public class OrderTransitionBenchmark {
+    static final int THREADS = 4;
+    private static final int ORDER_COUNT = 100_000;
+
+    private final AtomicLong attempts = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderManagerApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:transitions;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.open-in-view=false",
+                        "orders.cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        orderService = context.getBean(OrderService.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        List<Order> batch = new ArrayList<>(OrderService.MAX_BATCH_SIZE);
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            batch.add(OrderServiceBenchmark.newOrder(i, "product-" + (i % 997)));
+            if (batch.size() == OrderService.MAX_BATCH_SIZE) {
+                orderService.createOrders(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatuses() {
+        // W_TRAKCIE -> NOWE is not an allowed transition, so the reset bypasses the service
+        transactionTemplate.executeWithoutResult(transaction -> entityManager
+                .createQuery("update Order o set o.status = :status")
+                .setParameter("status", OrderStatus.NOWE)
+                .executeUpdate());
+        attempts.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public StatusTransitionResult compareAndSet() {
+        return orderService.transitionStatus(nextOrderId(), OrderStatus.NOWE, OrderStatus.W_TRAKCIE);
+    }
+
+    @Benchmark
+    public Boolean pessimisticLock() {
+        long id = nextOrderId();
+        return transactionTemplate.execute(transaction -> {
+            Order order = entityManager.find(Order.class, id, LockModeType.PESSIMISTIC_WRITE);
+            if (order == null || order.getStatus() != OrderStatus.NOWE) {
+                return false;
+            }
+            order.setStatus(OrderStatus.W_TRAKCIE);
+            return true;
+        });
+    }
+
+    // every order id is handed out THREADS times in a row, so the threads contend for the same rows
+    private long nextOrderId() {
+        return attempts.getAndIncrement() / THREADS % ORDER_COUNT + 1;
+    }
+}
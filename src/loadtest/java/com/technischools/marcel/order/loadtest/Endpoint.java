@@ -0,0 +1,31 @@
+package com.technischools.marcel.order.loadtest;
+
+/**
+ * The requests the load test can send, named as they are given in the {@code mix} option.
+ */
+enum Endpoint {
+    CREATE("create"),
+    GET_BY_ID("get-by-id"),
+    GET_BY_STATUS("get-by-status"),
+    PATCH("patch"),
+    DELETE("delete");
+
+    private final String label;
+
+    Endpoint(String label) {
+        this.label = label;
+    }
+
+    String label() {
+        return label;
+    }
+
+    static Endpoint fromLabel(String label) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.label.equals(label)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("Unknown endpoint: " + label);
+    }
+}
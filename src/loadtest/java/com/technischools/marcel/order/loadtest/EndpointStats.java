@@ -0,0 +1,80 @@
+package com.technischools.marcel.order.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies (in microseconds, measured from the intended start) and response status counts of one endpoint.
+ * Requests that failed without a response are counted under {@code io-error}.
+ */
+class EndpointStats {
+
+    private final String name;
+    private final Histogram latencies = new ConcurrentHistogram(3);
+    private final Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyNanos, Integer status, Throwable failure) {
+        latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        String key = failure != null || status == null ? "io-error" : status.toString();
+        responses.computeIfAbsent(key, ignored -> new LongAdder()).increment();
+    }
+
+    String name() {
+        return name;
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    static String header() {
+        return String.format("%-14s %9s %9s %9s %9s %9s %9s %9s  %s",
+                "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "responses");
+    }
+
+    static String row(String name, Histogram histogram, double seconds, Map<String, Long> responses) {
+        return String.format("%-14s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s",
+                name, histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()), responses);
+    }
+
+    String row(double seconds) {
+        return row(name, latencies, seconds, responses());
+    }
+
+    Map<String, Long> responses() {
+        Map<String, Long> counts = new TreeMap<>();
+        responses.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Writes the full percentile distribution in HdrHistogram's {@code .hgrm} format, values in milliseconds.
+     */
+    static void writeDistribution(Histogram histogram, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
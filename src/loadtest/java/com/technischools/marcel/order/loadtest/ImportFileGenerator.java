@@ -0,0 +1,56 @@
+package com.technischools.marcel.order.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a synthetic CSV file for {@code POST /orders/import}: a header and {@code lines} orders with 1-5 products
+ * each, random statuses and creation times in 2024. The same seed gives the same file, so import runs can be
+ * compared across changes. It has no dependencies and runs straight from the source file:
+ * <pre>
+ * java src/loadtest/java/com/technischools/marcel/order/loadtest/ImportFileGenerator.java \
+ *     data/import/legacy.csv 10000000 [seed]
+ * </pre>
+ */
+public class ImportFileGenerator {
+    private static final String[] STATUSES = {"NOWE", "W_TRAKCIE", "ZAKONCZONE", "ANULOWANE"};
+    private static final int CUSTOMERS = 100_000;
+    private static final int PRODUCTS = 10_000;
+    private static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int SECONDS_PER_YEAR = 366 * 24 * 60 * 60;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: ImportFileGenerator <file> <lines> [seed]");
+        }
+        Path file = Path.of(args[0]);
+        long lines = Long.parseLong(args[1]);
+        SplittableRandom random = new SplittableRandom(args.length > 2 ? Long.parseLong(args[2]) : 42);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        long start = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("customerId,products,createdAt,status\n");
+            StringBuilder line = new StringBuilder(128);
+            for (long i = 0; i < lines; i++) {
+                line.setLength(0);
+                line.append(random.nextInt(CUSTOMERS) + 1).append(',');
+                int productCount = random.nextInt(1, 6);
+                for (int p = 0; p < productCount; p++) {
+                    line.append(p == 0 ? "" : "|").append("product-").append(random.nextInt(PRODUCTS));
+                }
+                line.append(',').append(FIRST_CREATED_AT.plusSeconds(random.nextInt(SECONDS_PER_YEAR)))
+                        .append(',').append(STATUSES[random.nextInt(STATUSES.length)]).append('\n');
+                out.append(line);
+            }
+        }
+        System.out.printf("Wrote %d lines, %d MB, to %s in %d ms%n", lines, Files.size(file) >> 20,
+                file.toAbsolutePath(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,67 @@
+package com.technischools.marcel.order.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test options, given as {@code key=value} arguments:
+ * <ul>
+ *     <li>{@code orders} - synthetic orders seeded before the run (10000)</li>
+ *     <li>{@code rate} - requests per second across all endpoints (200). A comma separated list, e.g.
+ *     {@code 250,500,1000}, runs one warmup and measured period per rate, in the given order</li>
+ *     <li>{@code warmup} - time at the target rate before measuring starts (10s)</li>
+ *     <li>{@code duration} - measured time (60s)</li>
+ *     <li>{@code mix} - relative endpoint weights (get-by-id:60,get-by-status:15,create:10,patch:10,delete:5)</li>
+ *     <li>{@code page-size} - limit sent with get-by-status (50)</li>
+ *     <li>{@code max-in-flight} - requests outstanding before the generator waits (1000)</li>
+ *     <li>{@code profiles} - comma separated Spring profiles for the application, e.g. virtual-threads (none)</li>
+ *     <li>{@code output} - directory for the percentile distribution files (target/loadtest)</li>
+ *     <li>{@code seed} - random seed for the data and the request sequence (42)</li>
+ * </ul>
+ * Arguments starting with {@code --} are passed to the application, e.g. {@code --orders.admission.enabled=false}.
+ */
+record LoadTestOptions(int orders, double[] rates, Duration warmup, Duration duration, RequestMix mix, int pageSize,
+                       int maxInFlight, String[] profiles, Path output, long seed,
+                       String[] applicationArgs) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        List<String> applicationArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                applicationArgs.add(arg);
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("orders", "10000")),
+                Arrays.stream(values.getOrDefault("rate", "200").split(",")).mapToDouble(Double::parseDouble).toArray(),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "60s")),
+                RequestMix.parse(values.getOrDefault("mix", "get-by-id:60,get-by-status:15,create:10,patch:10,delete:5")),
+                Integer.parseInt(values.getOrDefault("page-size", "50")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "1000")),
+                values.getOrDefault("profiles", "").isBlank() ? new String[0] : values.get("profiles").split(","),
+                Path.of(values.getOrDefault("output", "target/loadtest")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                applicationArgs.toArray(String[]::new));
+        if (options.rates.length == 0 || Arrays.stream(options.rates).anyMatch(rate -> rate <= 0)
+                || options.maxInFlight <= 0 || options.orders < 0 || options.duration.isNegative()
+                || options.duration.isZero() || options.warmup.isNegative()) {
+            throw new IllegalArgumentException("Invalid load test options: " + values);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,164 @@
+package com.technischools.marcel.order.loadtest;
+
+import com.technischools.marcel.OrderManagerApp;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the whole stack (Tomcat, controller, service, JPA, H2). Boots the application on a random
+ * port, seeds synthetic orders over HTTP and then sends a weighted mix of requests at a fixed rate.
+ * <p>
+ * The load is open-loop: request {@code i} is scheduled to start at {@code begin + i / rate} no matter how long
+ * earlier requests take, and its latency is measured from that intended start. When the server stalls, requests
+ * that should have been sent during the stall are charged for the time they waited, so the percentiles are not
+ * hidden by the generator slowing down with the server (coordinated omission). The same holds when the generator
+ * itself falls behind or waits for {@code max-in-flight}.
+ * <p>
+ * Run with {@code mvn -B -P loadtest -DskipTests verify -Dloadtest.args="rate=500 duration=60s"}, see
+ * {@link LoadTestOptions} for the options.
+ */
+public class OrderLoadTest {
+
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(60);
+
+    private final LoadTestOptions options;
+    private final URI baseUri;
+
+    OrderLoadTest(LoadTestOptions options, URI baseUri) {
+        this.options = options;
+        this.baseUri = baseUri;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(OrderManagerApp.class)
+                .profiles(options.profiles())
+                .properties("server.port=0", "logging.level.root=WARN", "spring.jpa.show-sql=false")
+                .run(options.applicationArgs())) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            new OrderLoadTest(options, URI.create("http://localhost:" + port)).run();
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            SplittableRandom random = new SplittableRandom(options.seed());
+            OrderWorkload workload = new OrderWorkload(client, baseUri, random, options.pageSize());
+            long seedStart = System.nanoTime();
+            workload.seed(options.orders());
+            System.out.printf("Seeded %d orders in %d ms%n", workload.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+            List<String> sweep = new ArrayList<>();
+            for (double rate : options.rates()) {
+                System.out.printf("%nMix %s at %.0f req/s, %s warmup, %s measured, profiles %s%n", options.mix(),
+                        rate, options.warmup(), options.duration(), String.join(",", options.profiles()));
+                Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+                for (Endpoint endpoint : Endpoint.values()) {
+                    stats.put(endpoint, new EndpointStats(endpoint.label()));
+                }
+                long measured = drive(workload, random, stats, rate);
+                Path output = options.rates().length == 1
+                        ? options.output() : options.output().resolve(String.format("rate-%.0f", rate));
+                sweep.add(report(stats, measured, String.format("%.0f req/s", rate), output));
+            }
+            if (sweep.size() > 1) {
+                // one total row per target rate, the knee is where p99 starts to climb
+                System.out.printf("%nSweep%n%s%n", EndpointStats.header().replaceFirst("endpoint", "target  "));
+                sweep.forEach(System.out::println);
+            }
+        }
+    }
+
+    /**
+     * Sends requests at the target rate for the warmup and the measured period, recording only requests whose
+     * intended start falls in the measured period, and waits for the outstanding ones. Returns the length of the
+     * measured period in nanoseconds.
+     */
+    private long drive(OrderWorkload workload, SplittableRandom random, Map<Endpoint, EndpointStats> stats,
+                       double rate) throws InterruptedException {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        long begin = System.nanoTime();
+        long measureFrom = begin + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        for (long i = 0; ; i++) {
+            long intendedStart = begin + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Endpoint endpoint = options.mix().next(random);
+            EndpointStats target = intendedStart >= measureFrom ? stats.get(endpoint) : null;
+            try {
+                workload.send(endpoint).whenComplete((status, failure) -> {
+                    long latency = System.nanoTime() - intendedStart;
+                    inFlight.release();
+                    if (target != null) {
+                        target.record(latency, status, failure);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                if (target != null) {
+                    target.record(System.nanoTime() - intendedStart, null, e);
+                }
+            }
+        }
+        if (!inFlight.tryAcquire(options.maxInFlight(), DRAIN_TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            System.out.printf("%d requests still outstanding after %s, not counted%n",
+                    options.maxInFlight() - inFlight.availablePermits(), DRAIN_TIMEOUT);
+        }
+        return end - measureFrom;
+    }
+
+    /**
+     * Prints one row per endpoint and the total, writes their distributions to {@code output} and returns the total
+     * row labelled with {@code target}.
+     */
+    private String report(Map<Endpoint, EndpointStats> stats, long measuredNanos, String target, Path output)
+            throws IOException {
+        double seconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        Histogram total = new Histogram(3);
+        Map<String, Long> totalResponses = new TreeMap<>();
+        System.out.println();
+        System.out.println(EndpointStats.header());
+        for (EndpointStats endpoint : stats.values()) {
+            if (endpoint.latencies().getTotalCount() == 0) {
+                continue;
+            }
+            System.out.println(endpoint.row(seconds));
+            total.add(endpoint.latencies());
+            endpoint.responses().forEach((status, count) -> totalResponses.merge(status, count, Long::sum));
+            EndpointStats.writeDistribution(endpoint.latencies(), output.resolve(endpoint.name() + ".hgrm"));
+        }
+        System.out.println(EndpointStats.row("total", total, seconds, totalResponses));
+        EndpointStats.writeDistribution(total, output.resolve("total.hgrm"));
+        System.out.printf("%nPercentile distributions written to %s%n", output.toAbsolutePath());
+        return EndpointStats.row(target, total, seconds, totalResponses);
+    }
+}
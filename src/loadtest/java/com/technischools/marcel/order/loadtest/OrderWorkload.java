@@ -0,0 +1,168 @@
+package com.technischools.marcel.order.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.service.OrderService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds and sends the requests of each {@link Endpoint} with synthetic data, and keeps track of the ids of the
+ * orders that exist so that reads, patches and deletes target real orders. Request building is not thread-safe and
+ * is expected to run on the single generator thread; the id pool is shared with the response callbacks.
+ */
+class OrderWorkload {
+
+    private static final int SEED_BATCH_SIZE = Math.min(1000, OrderService.MAX_BATCH_SIZE);
+    private static final int CUSTOMERS = 10_000;
+    private static final int PRODUCTS = 1_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SplittableRandom random;
+    private final int pageSize;
+    private final List<Long> ids = new ArrayList<>();
+
+    OrderWorkload(HttpClient client, URI baseUri, SplittableRandom random, int pageSize) {
+        this.client = client;
+        this.baseUri = baseUri;
+        this.random = random;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Creates {@code count} orders through the batch endpoint, one batch at a time.
+     */
+    void seed(int count) throws IOException, InterruptedException {
+        for (int from = 0; from < count; from += SEED_BATCH_SIZE) {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(count, from + SEED_BATCH_SIZE); i++) {
+                batch.add(order());
+            }
+            HttpResponse<String> response = client.send(
+                    json("/orders/batch", batch).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode result : mapper.readTree(response.body())) {
+                if (result.path("created").asBoolean()) {
+                    addId(result.get("id").asLong());
+                }
+            }
+        }
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Sends one request and completes with its response status.
+     */
+    CompletableFuture<Integer> send(Endpoint endpoint) {
+        return switch (endpoint) {
+            case CREATE -> client.sendAsync(json("/orders", order()).build(), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        if (response.statusCode() == 201) {
+                            addId(readId(response.body()));
+                        }
+                        return response.statusCode();
+                    });
+            case GET_BY_ID -> discard(request("/orders/" + pickId()).GET());
+            case GET_BY_STATUS -> discard(request("/orders/get-by-status?status=" + randomStatus()
+                    + "&limit=" + pageSize).GET());
+            case PATCH -> discard(request("/orders/" + pickId() + "?products=" + String.join(",", products()))
+                    .method("PATCH", HttpRequest.BodyPublishers.noBody()));
+            case DELETE -> discard(request("/orders/" + takeId()).DELETE());
+        };
+    }
+
+    private CompletableFuture<Integer> discard(HttpRequest.Builder request) {
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    private HttpRequest.Builder json(String path, Object body) {
+        try {
+            return request(path)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> order() {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("customerId", 1 + random.nextInt(CUSTOMERS));
+        order.put("products", products());
+        order.put("status", randomStatus());
+        return order;
+    }
+
+    private List<String> products() {
+        int count = 1 + random.nextInt(5);
+        List<String> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add("product-" + random.nextInt(PRODUCTS));
+        }
+        return products;
+    }
+
+    private String randomStatus() {
+        OrderStatus[] statuses = OrderStatus.values();
+        return statuses[random.nextInt(statuses.length)].name();
+    }
+
+    private long readId(String body) {
+        try {
+            return mapper.readTree(body).get("id").asLong();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void addId(long id) {
+        ids.add(id);
+    }
+
+    /**
+     * A random existing id, or 0 (never assigned, so the request gets a 404) when no orders are left.
+     */
+    private synchronized long pickId() {
+        return ids.isEmpty() ? 0 : ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Like {@link #pickId()}, but removes the id from the pool so that it is deleted only once.
+     */
+    private synchronized long takeId() {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int index = random.nextInt(ids.size());
+        long id = ids.get(index);
+        ids.set(index, ids.getLast());
+        ids.removeLast();
+        return id;
+    }
+}
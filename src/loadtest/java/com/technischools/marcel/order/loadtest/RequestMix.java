@@ -0,0 +1,64 @@
+package com.technischools.marcel.order.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Weighted choice of the next endpoint, parsed from {@code get-by-id:60,create:10,...}. Weights are relative and
+ * don't have to add up to 100.
+ */
+class RequestMix {
+
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+
+    private RequestMix(Map<Endpoint, Integer> weights) {
+        endpoints = weights.keySet().toArray(Endpoint[]::new);
+        cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Request mix has no positive weights");
+        }
+    }
+
+    static RequestMix parse(String spec) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected endpoint:weight, got " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + parts[0]);
+            }
+            weights.put(Endpoint.fromLabel(parts[0].trim()), weight);
+        }
+        return new RequestMix(weights);
+    }
+
+    Endpoint next(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < endpoints.length; i++) {
+            int weight = cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]);
+            builder.append(i == 0 ? "" : ",").append(endpoints[i].label()).append(':').append(weight);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package com.technischools.marcel.order.controller;
+
+import com.technischools.marcel.order.model.OrderAdmissionStats;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to latency, gradient style. Every completed request feeds its latency in:
+ * <ul>
+ *     <li>the baseline is the minimum latency over the current and the previous window of
+ *     {@value #BASELINE_WINDOW} samples, the latency of a request that did not queue. An average would creep up
+ *     with the queueing it is meant to detect, a minimum does not, and the windows still let it follow a lasting
+ *     change,</li>
+ *     <li>the gradient {@code tolerance x baseline / recent latency}, where the recent latency is a short average
+ *     over about {@value #RECENT_WINDOW} samples, clamped to {@code [0.5, 1]}, shrinks the limit once requests get
+ *     slower than the baseline (they queue somewhere downstream), and {@code sqrt(limit)} is added as headroom so the
+ *     limit keeps probing upwards while latency is flat,</li>
+ *     <li>the new limit is blended into the current one with {@code smoothing},</li>
+ *     <li>a failed request (exception or 5xx) cuts the limit multiplicatively.</li>
+ * </ul>
+ * The limit only grows while at least half of it is in use, so an idle pool does not drift to its maximum.
+ */
+public class AdaptiveConcurrencyLimit {
+    // samples per minimum latency window
+    private static final int BASELINE_WINDOW = 500;
+    // samples the recent latency averages over
+    private static final int RECENT_WINDOW = 10;
+    private static final double FAILURE_BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    // guarded by this
+    private long windowMinNanos = Long.MAX_VALUE;
+    private long previousWindowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private double recentNanos;
+
+    public AdaptiveConcurrencyLimit(String name, OrderAdmissionProperties.Pool pool, double tolerance,
+                                    double smoothing) {
+        this.name = name;
+        this.minLimit = pool.minLimit();
+        this.maxLimit = pool.maxLimit();
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.clamp(pool.initialLimit(), minLimit, maxLimit);
+    }
+
+    /**
+     * Takes a slot if fewer than {@code limit} requests are in flight. Every successful call must be followed by
+     * exactly one {@link #release}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot. {@code latencyNanos} is ignored when negative, e.g. for streamed responses whose duration says
+     * nothing about load.
+     */
+    public void release(long latencyNanos, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (failed) {
+            onFailure();
+        } else if (latencyNanos >= 0) {
+            onSample(Math.max(latencyNanos, 1), inFlightBefore);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public OrderAdmissionStats stats() {
+        return new OrderAdmissionStats(name, limit(), inFlight(), admitted.sum(), rejected());
+    }
+
+    private synchronized void onSample(long latencyNanos, int inFlightBefore) {
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        if (++windowSamples == BASELINE_WINDOW) {
+            previousWindowMinNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        long baselineNanos = Math.min(windowMinNanos, previousWindowMinNanos);
+        if (recentNanos == 0) {
+            recentNanos = latencyNanos;
+        } else {
+            recentNanos += (latencyNanos - recentNanos) / RECENT_WINDOW;
+        }
+        double gradient = Math.clamp(tolerance * baselineNanos / recentNanos, 0.5, 1.0);
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - smoothing) + target * smoothing;
+        if (next > limit && inFlightBefore < limit / 2) {
+            return;
+        }
+        limit = Math.clamp(next, minLimit, maxLimit);
+    }
+
+    private synchronized void onFailure() {
+        limit = Math.max(minLimit, limit * FAILURE_BACKOFF);
+    }
+}
@@ -0,0 +1,143 @@
+package com.technischools.marcel.order.controller;
+
+import com.technischools.marcel.order.model.OrderAdmissionStats;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the order endpoints. Requests are split into two pools, each with its own
+ * {@link AdaptiveConcurrencyLimit}, so a burst of expensive list queries cannot starve single-order operations:
+ * <ul>
+ *     <li>{@code expensive}: unpaged and paged lists, time ranges, histograms, exports and bulk operations,</li>
+ *     <li>{@code cheap}: everything that touches one order, and the stats endpoints.</li>
+ * </ul>
+ * A request over the limit of its pool is answered right away with {@code 503} and {@code Retry-After} instead of
+ * queueing for a Tomcat thread or a database connection. The change feed (long-lived by design), file imports (one
+ * request runs for minutes and would skew the latency baseline) and the admission stats are not limited. Runs right
+ * after the observation filter, so rejections still show up in the HTTP metrics.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class OrderAdmissionFilter extends OncePerRequestFilter {
+    static final String EXPENSIVE = "expensive";
+    static final String CHEAP = "cheap";
+
+    private static final Set<String> EXPENSIVE_READS = Set.of(
+            "/orders", "/orders/get-by-status", "/orders/created", "/orders/histogram", "/orders/export");
+    private static final Set<String> EXPENSIVE_WRITES = Set.of("/orders/batch", "/orders/status", "/orders/stats/reconcile");
+    private static final Set<String> UNLIMITED = Set.of(
+            "/orders/changes", "/orders/import", "/orders/admission/stats");
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final AdaptiveConcurrencyLimit cheap;
+    private final AdaptiveConcurrencyLimit expensive;
+
+    public OrderAdmissionFilter(OrderAdmissionProperties properties) {
+        this.enabled = properties.enabled();
+        this.retryAfterSeconds = Long.toString(Math.max(1, properties.retryAfter().toSeconds()));
+        this.cheap = new AdaptiveConcurrencyLimit(CHEAP, properties.cheap(), properties.rttTolerance(),
+                properties.smoothing());
+        this.expensive = new AdaptiveConcurrencyLimit(EXPENSIVE, properties.expensive(), properties.rttTolerance(),
+                properties.smoothing());
+    }
+
+    public List<AdaptiveConcurrencyLimit> pools() {
+        return List.of(cheap, expensive);
+    }
+
+    public List<OrderAdmissionStats> stats() {
+        return pools().stream().map(AdaptiveConcurrencyLimit::stats).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || poolFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdaptiveConcurrencyLimit pool = poolFor(request);
+        if (!pool.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many concurrent requests, retry later");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                // streamed responses hold the slot until they complete, their duration is not a latency sample
+                AtomicBoolean released = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release(true);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release(true);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+
+                    private void release(boolean asyncFailed) {
+                        if (released.compareAndSet(false, true)) {
+                            pool.release(-1, asyncFailed);
+                        }
+                    }
+                });
+            } else {
+                pool.release(System.nanoTime() - start, failed);
+            }
+        }
+    }
+
+    private AdaptiveConcurrencyLimit poolFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (!path.equals("/orders") && !path.startsWith("/orders/") || UNLIMITED.contains(path)) {
+            return null;
+        }
+        String method = request.getMethod();
+        boolean read = HttpMethod.GET.matches(method);
+        if (read && EXPENSIVE_READS.contains(path) || !read && EXPENSIVE_WRITES.contains(path)) {
+            return expensive;
+        }
+        return cheap;
+    }
+}
@@ -0,0 +1,21 @@
+package com.technischools.marcel.order.controller;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.admission")
+public record OrderAdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1s") Duration retryAfter,
+        @DefaultValue("1.5") double rttTolerance,
+        @DefaultValue("0.2") double smoothing,
+        @DefaultValue Pool cheap,
+        @DefaultValue Pool expensive) {
+
+    public record Pool(
+            @DefaultValue("20") int initialLimit,
+            @DefaultValue("2") int minLimit,
+            @DefaultValue("200") int maxLimit) {}
+}
@@ -1,7 +1,17 @@
 package com.technischools.marcel.order.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.technischools.marcel.order.model.BulkStatusUpdate;
 import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderAdmissionStats;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.model.OrderCacheStats;
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderCursor;
 import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import com.technischools.marcel.order.service.OrderChangeFeed;
 import com.technischools.marcel.order.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,21 +22,41 @@ import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiFunction;
 
 @RestController
 @RequestMapping("/orders")
 @Tag(name = "Order Management", description = "APIs for managing orders")
 public class OrderController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final OrderAdmissionFilter admissionFilter;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, ObjectMapper objectMapper, OrderAdmissionFilter admissionFilter) {
         this.orderService = orderService;
+        this.objectMapper = objectMapper;
+        this.admissionFilter = admissionFilter;
     }
 
     @PostMapping
@@ -40,34 +70,64 @@ public class OrderController {
     public ResponseEntity<?> createOrder(
             @Parameter(description = "Order object to be created", required = true)
             @RequestBody Order order) {
-        if (order.getCustomerId() == null || order.getProducts() == null || order.getProducts().isEmpty()) {
+        if (!OrderService.isValid(order)) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid order data");
         }
         Order createdOrder = orderService.createOrder(order);
         return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
     }
 
+    @PostMapping(path = "/batch")
+    @Operation(summary = "Create orders in bulk", description = "Creates up to " + OrderService.MAX_BATCH_SIZE + " orders in one request using batched inserts. The same defaults as for a single order apply. Returns one result per order, in request order.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-order results",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = OrderBatchResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch",
+                    content = @Content(examples = @ExampleObject(value = "Invalid batch size")))
+    })
+    public ResponseEntity<?> createOrders(
+            @Parameter(description = "Orders to be created", required = true)
+            @RequestBody List<Order> orders) {
+        if (orders == null || orders.isEmpty() || orders.size() > OrderService.MAX_BATCH_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid batch size");
+        }
+        List<OrderBatchResult> results = orderService.createOrders(orders);
+        return ResponseEntity.status(HttpStatus.OK).body(results);
+    }
+
     @GetMapping(path = "/{id}")
-    @Operation(summary = "Get order by ID", description = "Returns an order by its ID")
+    @Operation(summary = "Get order by ID", description = "Returns an order by its ID with its version as a strong ETag. Send the ETag back in If-None-Match to get 304 while the order is unchanged.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order found",
                     content = @Content(schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "304", description = "Order not modified", content = @Content),
             @ApiResponse(responseCode = "404", description = "Order not found",
                     content = @Content(examples = @ExampleObject(value = "Order not found"))),
     })
     public ResponseEntity<?> getOrderById(
             @Parameter(description = "ID of the order to retrieve", required = true)
-            @PathVariable() Long id) {
+            @PathVariable() Long id,
+            WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<String> tag = orderService.getOrderVersionTag(id);
+            if (tag.isPresent() && request.checkNotModified(tag.get())) {
+                return null;
+            }
+        }
         List<Order> orders = orderService.getOrders(Optional.ofNullable(id), Optional.empty());
         if (orders.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        }
+        String tag = orderService.versionTag(orders.getFirst());
+        if (tag != null && request.checkNotModified(tag)) {
+            return null;
         } else {
             return ResponseEntity.status(HttpStatus.OK).body(orders);
         }
     }
 
     @GetMapping(path = "/get-by-status")
-    @Operation(summary = "Get orders by status", description = "Returns all orders with the specified status")
+    @Operation(summary = "Get orders by status", description = "Returns all orders with the specified status. Pass after and/or limit to page through them by id; the next cursor is returned in the X-Next-Cursor header.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Orders found",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = Order.class)))),
@@ -76,39 +136,255 @@ public class OrderController {
     })
     public ResponseEntity<?> getOrders(
             @Parameter(description = "Status to filter orders by", required = true)
-            @RequestParam() String status) {
-        List<Order> orders = orderService.getOrders(Optional.empty(), OrderStatus.toValidStatus(status));
-        if (orders.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
-        } else {
-            return ResponseEntity.status(HttpStatus.OK).body(orders);
+            @RequestParam() String status,
+            @Parameter(description = "Return only orders with an id greater than this cursor")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Maximum number of orders to return (1-" + OrderService.MAX_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (listNotModified(request)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return listResponse(orderService.getOrders(Optional.empty(), OrderStatus.toValidStatus(status)));
         }
+        return pageResponse(OrderStatus.toValidStatus(status), after, limit);
     }
 
     @GetMapping(path = "")
-    @Operation(summary = "Get all orders", description = "Returns all orders in the system")
+    @Operation(summary = "Get all orders", description = "Returns all orders in the system, the orders containing the given products, or one customer's orders newest first. Pass after and/or limit to page through them by id; the next cursor is returned in the X-Next-Cursor header.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders found",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = Order.class)))),
+            @ApiResponse(responseCode = "404", description = "No orders found",
+                    content = @Content(examples = @ExampleObject(value = "Order not found")))
+    })
+    public ResponseEntity<?> getAllOrders(
+            @Parameter(description = "Return only this customer's orders, newest first, always paged")
+            @RequestParam(required = false) Integer customerId,
+            @Parameter(description = "Only with customerId: status to filter the customer's orders by")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Only with customerId: X-Next-Cursor value of the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Return only orders containing these products, always paged")
+            @RequestParam(required = false) List<String> product,
+            @Parameter(description = "With several products: any (OR) or all (AND)", schema = @Schema(allowableValues = {"any", "all"}))
+            @RequestParam(defaultValue = "any") String match,
+            @Parameter(description = "Return only orders with an id greater than this cursor")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Maximum number of orders to return (1-" + OrderService.MAX_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (listNotModified(request)) {
+            return null;
+        }
+        if (customerId != null) {
+            if (product != null || after != null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid filter combination");
+            }
+            return customerPageResponse(customerId, status, cursor, limit);
+        }
+        if (status != null || cursor != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid filter combination");
+        }
+        if (product != null && !product.isEmpty()) {
+            if (!match.equals("any") && !match.equals("all")) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid match mode");
+            }
+            return pageResponse((cursor, pageSize) ->
+                    orderService.getOrdersByProducts(product, match.equals("all"), cursor, pageSize), after, limit);
+        }
+        if (after == null && limit == null) {
+            return listResponse(orderService.getOrders(Optional.empty(), Optional.empty()));
+        }
+        return pageResponse(Optional.empty(), after, limit);
+    }
+
+    @GetMapping(path = "/created")
+    @Operation(summary = "Get orders by creation time", description = "Returns a page of orders created in [from, to), oldest first. Pass the X-Next-Cursor value of the previous page as cursor to get the next one.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Orders found",
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = Order.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid page request",
+                    content = @Content(examples = @ExampleObject(value = "Invalid page request"))),
             @ApiResponse(responseCode = "404", description = "No orders found",
                     content = @Content(examples = @ExampleObject(value = "Order not found")))
     })
-    public ResponseEntity<?> getAllOrders() {
-        List<Order> orders = orderService.getOrders(Optional.empty(), Optional.empty());
+    public ResponseEntity<?> getOrdersCreatedBetween(
+            @Parameter(description = "Start of the range, inclusive", required = true, example = "2024-03-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive", required = true, example = "2024-04-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "X-Next-Cursor value of the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of orders to return (1-" + OrderService.MAX_PAGE_SIZE + ")")
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        if (listNotModified(request)) {
+            return null;
+        }
+        int pageSize = limit == null ? OrderService.DEFAULT_PAGE_SIZE : limit;
+        Optional<OrderCursor> after = OrderCursor.parse(cursor);
+        if (pageSize < 1 || pageSize > OrderService.MAX_PAGE_SIZE || !from.isBefore(to)
+                || (cursor != null && after.isEmpty())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid page request");
+        }
+        List<Order> orders = orderService.getOrdersCreatedBetween(from, to, after, pageSize);
         if (orders.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
-        } else {
-            return ResponseEntity.status(HttpStatus.OK).body(orders);
         }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (orders.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, OrderCursor.of(orders.getLast()).toString());
+        }
+        return response.body(orders);
+    }
+
+    @GetMapping(path = "/histogram")
+    @Operation(summary = "Get order counts over time", description = "Returns the number of orders per status created in each hour or day of [from, to). Buckets without orders are omitted.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order counts per bucket",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = OrderTimeBucket.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid histogram request",
+                    content = @Content(examples = @ExampleObject(value = "Invalid histogram request")))
+    })
+    public ResponseEntity<?> getOrderHistogram(
+            @Parameter(description = "Start of the range, inclusive", required = true, example = "2024-03-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End of the range, exclusive", required = true, example = "2024-04-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Bucket size", schema = @Schema(allowableValues = {"hour", "day"}))
+            @RequestParam(defaultValue = "day") String bucket) {
+        ChronoUnit unit = switch (bucket) {
+            case "hour" -> ChronoUnit.HOURS;
+            case "day" -> ChronoUnit.DAYS;
+            default -> null;
+        };
+        if (unit == null || !from.isBefore(to) || unit.between(from, to) > OrderService.MAX_HISTOGRAM_BUCKETS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid histogram request");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(orderService.getOrderHistogram(from, to, unit));
+    }
+
+    @GetMapping(path = "/stats")
+    @Operation(summary = "Get order counts per status", description = "Returns the number of orders in each status from incrementally maintained counters")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order counts",
+                    content = @Content(examples = @ExampleObject(value = "{\"NOWE\": 12, \"W_TRAKCIE\": 3, \"ZAKONCZONE\": 40, \"ANULOWANE\": 1}")))
+    })
+    public ResponseEntity<?> getStatusCounts() {
+        return ResponseEntity.status(HttpStatus.OK).body(orderService.getStatusCounts());
+    }
+
+    @PostMapping(path = "/stats/reconcile")
+    @Operation(summary = "Recount orders per status", description = "Recounts orders per status in the database, replaces the counters and returns the new counts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Order counts",
+                    content = @Content(examples = @ExampleObject(value = "{\"NOWE\": 12, \"W_TRAKCIE\": 3, \"ZAKONCZONE\": 40, \"ANULOWANE\": 1}")))
+    })
+    public ResponseEntity<?> reconcileStatusCounts() {
+        return ResponseEntity.status(HttpStatus.OK).body(orderService.reconcileStatusCounts());
+    }
+
+    @GetMapping(path = "/cache/stats")
+    @Operation(summary = "Get order cache statistics", description = "Returns hit, miss and eviction counts of the order-by-id cache")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cache statistics",
+                    content = @Content(schema = @Schema(implementation = OrderCacheStats.class)))
+    })
+    public ResponseEntity<?> getCacheStats() {
+        return ResponseEntity.status(HttpStatus.OK).body(orderService.getCacheStats());
+    }
+
+    @GetMapping(path = "/admission/stats")
+    @Operation(summary = "Get admission control statistics", description = "Returns the current adaptive concurrency limit, requests in flight, and admitted and rejected counts of each admission pool. Requests over the limit of their pool get 503 with Retry-After.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Admission statistics",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = OrderAdmissionStats.class))))
+    })
+    public ResponseEntity<?> getAdmissionStats() {
+        return ResponseEntity.status(HttpStatus.OK).body(admissionFilter.stats());
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow order changes", description = "Server-sent events for every committed order creation, update and deletion (bulk status updates excepted). Each event id is its sequence number; reconnect with Last-Event-ID (or after) to resume. A RESET event means events were missed and the orders should be reloaded.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = OrderChangeEvent.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid status", content = @Content)
+    })
+    public ResponseEntity<SseEmitter> streamChanges(
+            @Parameter(description = "Only changes of orders entering or leaving this status")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Resume after this sequence number, overrides Last-Event-ID")
+            @RequestParam(required = false) Long after,
+            @Parameter(description = "Sequence number of the last event received, sent by EventSource on reconnect")
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        Optional<OrderStatus> orderStatus = OrderStatus.toValidStatus(status);
+        if (status != null && orderStatus.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        SseEmitter emitter = new SseEmitter();
+        OrderChangeFeed.Subscription subscription = orderService.subscribeToChanges(orderStatus,
+                Optional.ofNullable(after != null ? after : lastEventId), new OrderChangeFeed.Sink() {
+                    @Override
+                    public void send(OrderChangeEvent event) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(event.sequence()))
+                                .name(event.type().name())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void close() {
+                        emitter.complete();
+                    }
+                });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return ResponseEntity.status(HttpStatus.OK).body(emitter);
+    }
+
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Export orders", description = "Streams all orders, optionally filtered by status, as newline-delimited JSON ordered by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders streamed",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid status",
+                    content = @Content(examples = @ExampleObject(value = "Invalid status")))
+    })
+    public ResponseEntity<?> exportOrders(
+            @Parameter(description = "Status to filter orders by")
+            @RequestParam(required = false) String status) {
+        Optional<OrderStatus> orderStatus = OrderStatus.toValidStatus(status);
+        if (status != null && orderStatus.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid status");
+        }
+        ObjectWriter writer = objectMapper.writerFor(Order.class);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            orderService.exportOrders(orderStatus, order -> {
+                try {
+                    out.write(writer.writeValueAsBytes(order));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.status(HttpStatus.OK).contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @PatchMapping(path = "/{id}")
-    @Operation(summary = "Update an order", description = "Updates an existing order's status and/or products")
+    @Operation(summary = "Update an order", description = "Updates an existing order's status and/or products. The status may only change along NOWE -> W_TRAKCIE, NOWE -> ANULOWANE, W_TRAKCIE -> ZAKONCZONE and W_TRAKCIE -> ANULOWANE.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Order updated successfully",
                     content = @Content(schema = @Schema(implementation = Order.class))),
             @ApiResponse(responseCode = "404", description = "Order not found",
-                    content = @Content(examples = @ExampleObject(value = "Order not found")))})
+                    content = @Content(examples = @ExampleObject(value = "Order not found"))),
+            @ApiResponse(responseCode = "409", description = "The order's current status may not move to the new status",
+                    content = @Content(examples = @ExampleObject(value = "Transition not allowed")))})
     public ResponseEntity<?> updateOrder(
             @Parameter(description = "ID of the order to update", required = true)
             @PathVariable Long id,
@@ -116,7 +392,12 @@ public class OrderController {
             @RequestParam(required = false) String status,
             @Parameter(description = "New product list for the order")
             @RequestParam(required = false) List<String> products) {
-        Order order = orderService.patchOrder(id, OrderStatus.toValidStatus(status), Optional.ofNullable(products));
+        Order order;
+        try {
+            order = orderService.patchOrder(id, OrderStatus.toValidStatus(status), Optional.ofNullable(products));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Transition not allowed");
+        }
         if (order == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
         } else {
@@ -124,6 +405,105 @@ public class OrderController {
         }
     }
 
+    @PostMapping(path = "/{id}/products")
+    @Operation(summary = "Add products to an order", description = "Appends the given products to the order's product list, writing only the new product rows")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products added",
+                    content = @Content(schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "404", description = "Order not found",
+                    content = @Content(examples = @ExampleObject(value = "Order not found")))
+    })
+    public ResponseEntity<?> addProducts(
+            @Parameter(description = "ID of the order to update", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "Products to add", required = true)
+            @RequestParam List<String> product) {
+        Order order = orderService.addProducts(id, product);
+        if (order == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(order);
+        }
+    }
+
+    @DeleteMapping(path = "/{id}/products")
+    @Operation(summary = "Remove products from an order", description = "Removes every occurrence of the given products from the order's product list, deleting only those product rows")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Products removed",
+                    content = @Content(schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "404", description = "Order not found",
+                    content = @Content(examples = @ExampleObject(value = "Order not found")))
+    })
+    public ResponseEntity<?> removeProducts(
+            @Parameter(description = "ID of the order to update", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "Products to remove", required = true)
+            @RequestParam List<String> product) {
+        Order order = orderService.removeProducts(id, product);
+        if (order == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(order);
+        }
+    }
+
+    @PatchMapping(path = "/{id}/status")
+    @Operation(summary = "Change an order's status", description = "Moves the order from expectedStatus to newStatus if it is still in expectedStatus. Only NOWE -> W_TRAKCIE, NOWE -> ANULOWANE, W_TRAKCIE -> ZAKONCZONE and W_TRAKCIE -> ANULOWANE are allowed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status changed",
+                    content = @Content(examples = @ExampleObject(value = "{\"id\": 1, \"status\": \"W_TRAKCIE\"}"))),
+            @ApiResponse(responseCode = "400", description = "Invalid status or transition not allowed",
+                    content = @Content(examples = @ExampleObject(value = "Transition not allowed"))),
+            @ApiResponse(responseCode = "404", description = "Order not found",
+                    content = @Content(examples = @ExampleObject(value = "Order not found"))),
+            @ApiResponse(responseCode = "409", description = "Order is no longer in the expected status",
+                    content = @Content(examples = @ExampleObject(value = "Status changed concurrently")))
+    })
+    public ResponseEntity<?> transitionOrderStatus(
+            @Parameter(description = "ID of the order to update", required = true)
+            @PathVariable Long id,
+            @Parameter(description = "Status the order is expected to be in", required = true)
+            @RequestParam String expectedStatus,
+            @Parameter(description = "Status to move the order to", required = true)
+            @RequestParam String newStatus) {
+        Optional<OrderStatus> expected = OrderStatus.toValidStatus(expectedStatus);
+        Optional<OrderStatus> target = OrderStatus.toValidStatus(newStatus);
+        if (expected.isEmpty() || target.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid status");
+        }
+        return switch (orderService.transitionStatus(id, expected.get(), target.get())) {
+            case UPDATED -> ResponseEntity.status(HttpStatus.OK).body(Map.of("id", id, "status", target.get()));
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).body("Status changed concurrently");
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+            case NOT_ALLOWED -> ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Transition not allowed");
+        };
+    }
+
+    @PatchMapping(path = "/status")
+    @Operation(summary = "Update the status of many orders", description = "Moves the orders selected by id, or by current status and optional creation cutoff, to the target status with set-based updates. Only orders whose status may move to the target status are updated. Returns the number of updated orders.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Orders updated",
+                    content = @Content(examples = @ExampleObject(value = "{\"updated\": 42}"))),
+            @ApiResponse(responseCode = "400", description = "Invalid status update or transition not allowed",
+                    content = @Content(examples = @ExampleObject(value = "Invalid status update")))
+    })
+    public ResponseEntity<?> updateOrdersStatus(
+            @Parameter(description = "Orders to update and their target status", required = true)
+            @RequestBody BulkStatusUpdate update) {
+        if (update == null || !update.isValid()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid status update");
+        }
+        int updated;
+        try {
+            updated = update.fromStatus() == null
+                    ? orderService.updateStatus(update.ids(), update.targetStatus())
+                    : orderService.updateStatus(update.fromStatus(), Optional.ofNullable(update.createdBefore()), update.targetStatus());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Transition not allowed");
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(Map.of("updated", updated));
+    }
+
     @DeleteMapping(path = "/{id}")
     @Operation(summary = "Delete an order", description = "Deletes an order by its ID")
     @ApiResponses(value = {
@@ -136,4 +516,62 @@ public class OrderController {
         orderService.deleteOrder(id);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).body("Order deleted successfully");
     }
+
+    /**
+     * Answers If-None-Match on the list endpoints with the collection watermark as a weak ETag ({@code W/"..."}):
+     * the server gzips large list responses and drops strong ETags from compressed responses, since the compressed
+     * bytes differ from the ones the tag was computed for. The watermark is read before the query runs, so a write
+     * committed meanwhile only makes the client's next poll fetch again.
+     */
+    private boolean listNotModified(WebRequest request) {
+        String tag = orderService.getOrdersVersionTag();
+        return tag != null && request.checkNotModified("W/\"" + tag + "\"");
+    }
+
+    private ResponseEntity<?> listResponse(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        } else {
+            return ResponseEntity.status(HttpStatus.OK).body(orders);
+        }
+    }
+
+    private ResponseEntity<?> customerPageResponse(Integer customerId, String status, String cursor, Integer limit) {
+        int pageSize = limit == null ? OrderService.DEFAULT_PAGE_SIZE : limit;
+        Optional<OrderStatus> orderStatus = OrderStatus.toValidStatus(status);
+        Optional<OrderCursor> before = OrderCursor.parse(cursor);
+        if (pageSize < 1 || pageSize > OrderService.MAX_PAGE_SIZE
+                || (status != null && orderStatus.isEmpty()) || (cursor != null && before.isEmpty())) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid page request");
+        }
+        List<Order> orders = orderService.getCustomerOrders(customerId, orderStatus, before, pageSize);
+        if (orders.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (orders.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, OrderCursor.of(orders.getLast()).toString());
+        }
+        return response.body(orders);
+    }
+
+    private ResponseEntity<?> pageResponse(Optional<OrderStatus> status, Long after, Integer limit) {
+        return pageResponse((cursor, pageSize) -> orderService.getOrders(status, cursor, pageSize), after, limit);
+    }
+
+    private ResponseEntity<?> pageResponse(BiFunction<Optional<Long>, Integer, List<Order>> query, Long after, Integer limit) {
+        int pageSize = limit == null ? OrderService.DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > OrderService.MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid page size");
+        }
+        List<Order> orders = query.apply(Optional.ofNullable(after), pageSize);
+        if (orders.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order not found");
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (orders.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(orders.getLast().getId()));
+        }
+        return response.body(orders);
+    }
 }
\ No newline at end of file
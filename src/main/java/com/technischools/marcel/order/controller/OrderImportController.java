@@ -0,0 +1,63 @@
+package com.technischools.marcel.order.controller;
+
+import com.technischools.marcel.order.model.OrderImportResult;
+import com.technischools.marcel.order.service.OrderImporter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+@RestController
+@RequestMapping("/orders")
+@Profile("!columnar")
+@Tag(name = "Order Management", description = "APIs for managing orders")
+public class OrderImportController {
+
+    private final OrderImporter importer;
+
+    public OrderImportController(OrderImporter importer) {
+        this.importer = importer;
+    }
+
+    @PostMapping(path = "/import")
+    @Operation(summary = "Bulk import orders from a file", description = "Imports a CSV or NDJSON file from the server's import directory (orders.import.directory) with batched inserts. Progress is checkpointed per chunk: importing the same file again continues after the last committed chunk, pass restart=true to import it from the beginning. Returns when the file is done.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File imported, invalid lines were skipped",
+                    content = @Content(schema = @Schema(implementation = OrderImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid file name, format or CSV header",
+                    content = @Content(examples = @ExampleObject(value = "Unsupported file format, expected .csv, .ndjson or .jsonl"))),
+            @ApiResponse(responseCode = "404", description = "File not found",
+                    content = @Content(examples = @ExampleObject(value = "File not found"))),
+            @ApiResponse(responseCode = "409", description = "The file is already being imported or changed since its checkpoint",
+                    content = @Content(examples = @ExampleObject(value = "An import of orders.csv is already running")))
+    })
+    public ResponseEntity<?> importOrders(
+            @Parameter(description = "File name relative to the import directory", required = true)
+            @RequestParam String file,
+            @Parameter(description = "Ignore the file's checkpoint and import it from the beginning")
+            @RequestParam(defaultValue = "false") boolean restart) throws IOException {
+        try {
+            return ResponseEntity.status(HttpStatus.OK).body(importer.importFile(file, restart));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("File not found");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.technischools.marcel.order.metrics;
+
+import com.technischools.marcel.order.controller.AdaptiveConcurrencyLimit;
+import com.technischools.marcel.order.controller.OrderAdmissionFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics on top of what Actuator binds by default (HTTP server requests, Hikari pool, JVM, Hibernate statistics):
+ * the number of SQL statements each request runs, and the admission control limits.
+ */
+@Configuration
+public class OrderMetricsConfiguration {
+
+    @Bean
+    public QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+    }
+
+    @Bean
+    public MeterBinder admissionMetrics(OrderAdmissionFilter admissionFilter) {
+        return registry -> admissionFilter.pools().forEach(pool -> {
+            Gauge.builder("orders.admission.limit", pool, AdaptiveConcurrencyLimit::limit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("pool", pool.name())
+                    .register(registry);
+            Gauge.builder("orders.admission.in.flight", pool, AdaptiveConcurrencyLimit::inFlight)
+                    .description("Requests running in the admission pool")
+                    .tag("pool", pool.name())
+                    .register(registry);
+            FunctionCounter.builder("orders.admission.rejected", pool, AdaptiveConcurrencyLimit::rejected)
+                    .description("Requests rejected with 503 by admission control")
+                    .tag("pool", pool.name())
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> queryCountFilter(QueryCounter queryCounter, MeterRegistry registry) {
+        // one summary per method and uri, built on first use instead of looked up in the registry on every request
+        Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+        OncePerRequestFilter filter = new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                    throws ServletException, IOException {
+                queryCounter.start();
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    int queries = queryCounter.stop();
+                    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    String method = request.getMethod();
+                    String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+                    summaries.computeIfAbsent(method + " " + uri, key -> DistributionSummary
+                                    .builder("orders.request.queries")
+                                    .description("SQL statements executed per request")
+                                    .tags("method", method, "uri", uri)
+                                    .register(registry))
+                            .record(queries);
+                }
+            }
+        };
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/orders/*", "/orders");
+        return registration;
+    }
+}
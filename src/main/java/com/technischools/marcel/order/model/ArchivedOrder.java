@@ -0,0 +1,45 @@
+package com.technischools.marcel.order.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cold-store row of an order in a terminal status, moved out of {@code orders} by the archiver. The product list is
+ * packed into a single compressed column instead of one {@code order_products} row per product, see
+ * {@code OrderArchive}. Archived orders never change: they keep their id and version.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "archived_orders")
+public class ArchivedOrder implements Persistable<Long> {
+    @Id
+    private Long id;
+
+    private Integer customerId;
+
+    private LocalDateTime createdAt;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private Long version;
+
+    private LocalDateTime archivedAt;
+
+    // a blob, so that packed product lists of any size fit and do not abort an archiver batch
+    @Lob
+    private byte[] products;
+
+    // ids are assigned from the hot table, rows are only ever inserted: skip the merge select on save
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
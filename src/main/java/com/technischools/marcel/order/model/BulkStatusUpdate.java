@@ -0,0 +1,28 @@
+package com.technischools.marcel.order.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Schema(description = "Bulk status transition, selecting orders either by id or by current status")
+public record BulkStatusUpdate(
+        @Schema(description = "IDs of the orders to update, mutually exclusive with fromStatus", example = "[1, 2, 3]")
+        List<Long> ids,
+        @Schema(description = "Update every order currently in this status, mutually exclusive with ids", example = "W_TRAKCIE")
+        OrderStatus fromStatus,
+        @Schema(description = "Only with fromStatus: update orders created before this timestamp", example = "2024-03-31T00:00:00")
+        LocalDateTime createdBefore,
+        @Schema(description = "Status to move the selected orders to", example = "ZAKONCZONE")
+        OrderStatus targetStatus) {
+
+    @JsonIgnore
+    public boolean isValid() {
+        if (targetStatus == null) {
+            return false;
+        }
+        boolean byIds = ids != null && !ids.isEmpty();
+        return byIds ? fromStatus == null && createdBefore == null : fromStatus != null;
+    }
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import java.time.LocalDateTime;
@@ -14,11 +15,16 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_id", columnList = "status, id"),
+        @Index(name = "idx_orders_customer_created", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_created", columnList = "created_at, id")
+})
 @Schema(description = "Entity representing a customer order")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     @Schema(description = "Unique identifier for the order", example = "1")
     private Long id;
 
@@ -28,6 +34,11 @@ public class Order {
 
     @NotNull
     @ElementCollection
+    @CollectionTable(name = "order_products", joinColumns = @JoinColumn(name = "order_id"), indexes = {
+            @Index(name = "idx_order_products_product", columnList = "product, order_id")
+    })
+    @Column(name = "product")
+    @BatchSize(size = 100)
     @Schema(description = "List of product identifiers in the order", example = "['product-123', 'product-456']")
     private List<String> products;
 
@@ -37,4 +48,9 @@ public class Order {
     @Enumerated(EnumType.STRING)
     @Schema(description = "Current status of the order", example = "NOWE")
     private OrderStatus status;
+
+    @Version
+    @Schema(description = "Incremented on every change of the order, used for optimistic locking and ETags",
+            example = "3", accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
 }
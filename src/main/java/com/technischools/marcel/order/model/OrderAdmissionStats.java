@@ -0,0 +1,16 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "State of one admission control pool")
+public record OrderAdmissionStats(
+        @Schema(description = "Pool name", example = "expensive")
+        String pool,
+        @Schema(description = "Current concurrency limit, adapted from observed latency", example = "12")
+        int limit,
+        @Schema(description = "Requests currently running in the pool", example = "7")
+        int inFlight,
+        @Schema(description = "Requests admitted since startup", example = "52310")
+        long admitted,
+        @Schema(description = "Requests rejected with 503 since startup", example = "418")
+        long rejected) {}
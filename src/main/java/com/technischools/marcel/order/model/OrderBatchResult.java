@@ -0,0 +1,23 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Outcome of a single order in a batch create request")
+public record OrderBatchResult(
+        @Schema(description = "Position of the order in the request array", example = "0")
+        int index,
+        @Schema(description = "ID assigned to the created order, null if it was not created", example = "1")
+        Long id,
+        @Schema(description = "Whether the order was created", example = "true")
+        boolean created,
+        @Schema(description = "Reason the order was not created", example = "Invalid order data")
+        String error) {
+
+    public static OrderBatchResult created(int index, Long id) {
+        return new OrderBatchResult(index, id, true, null);
+    }
+
+    public static OrderBatchResult failed(int index, String error) {
+        return new OrderBatchResult(index, null, false, error);
+    }
+}
@@ -0,0 +1,16 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Statistics of the order-by-id cache")
+public record OrderCacheStats(
+        @Schema(description = "Whether the cache is enabled", example = "true")
+        boolean enabled,
+        @Schema(description = "Approximate number of cached orders", example = "812")
+        long size,
+        @Schema(description = "Lookups served from the cache", example = "10452")
+        long hitCount,
+        @Schema(description = "Lookups that went to the database", example = "913")
+        long missCount,
+        @Schema(description = "Entries removed because of size or expiry", example = "101")
+        long evictionCount) {}
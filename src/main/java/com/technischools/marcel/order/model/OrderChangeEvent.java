@@ -0,0 +1,34 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Committed change of an order, as sent by the change feed")
+public record OrderChangeEvent(
+        @Schema(description = "Position in the feed, pass it as Last-Event-ID to resume after this event", example = "1234")
+        long sequence,
+        @Schema(description = "Kind of change", example = "UPDATED")
+        Type type,
+        @Schema(description = "ID of the changed order, missing for RESET", example = "1")
+        Long orderId,
+        @Schema(description = "Status after the change, or before it for DELETED", example = "W_TRAKCIE")
+        OrderStatus status,
+        @Schema(description = "Status before the change, for UPDATED", example = "NOWE")
+        OrderStatus previousStatus,
+        @Schema(description = "Time of the commit", example = "2024-03-31T12:30:00")
+        LocalDateTime committedAt) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        // the requested resume position is no longer buffered: reload the orders, then follow the feed
+        RESET
+    }
+
+    /**
+     * Whether a subscriber filtering by {@code status} gets this event: orders that enter or leave the status.
+     */
+    public boolean concerns(OrderStatus status) {
+        return type == Type.RESET || this.status == status || previousStatus == status;
+    }
+}
@@ -0,0 +1,37 @@
+package com.technischools.marcel.order.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Position in a newest-first listing: the creation timestamp and id of the last order returned. Serialized as
+ * {@code <createdAt>,<id>}, for example {@code 2024-03-31T12:30:00,42}.
+ */
+public record OrderCursor(LocalDateTime createdAt, Long id) {
+
+    public static OrderCursor of(Order order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    public static Optional<OrderCursor> parse(String cursor) {
+        if (cursor == null) {
+            return Optional.empty();
+        }
+        int separator = cursor.lastIndexOf(',');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new OrderCursor(LocalDateTime.parse(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1))));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return createdAt + "," + id;
+    }
+}
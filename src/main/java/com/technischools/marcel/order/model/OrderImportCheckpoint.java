@@ -0,0 +1,40 @@
+package com.technischools.marcel.order.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a bulk import of one file. It is updated in the same transaction as the rows of each imported chunk,
+ * so {@code committedBytes} always points at the first line whose orders are not in the database yet.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "order_import_checkpoints")
+public class OrderImportCheckpoint {
+    @Id
+    private String fileName;
+
+    // size of the file when the import started, a different size means the file was replaced
+    private long fileSize;
+
+    private long committedBytes;
+
+    private long importedRows;
+
+    private long rejectedRows;
+
+    private LocalDateTime updatedAt;
+
+    public OrderImportCheckpoint(String fileName, long fileSize) {
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+    }
+}
@@ -0,0 +1,24 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Outcome of a bulk import")
+public record OrderImportResult(
+        @Schema(description = "Imported file, relative to the import directory", example = "legacy-orders.csv")
+        String file,
+        @Schema(description = "Orders imported from this file so far, including earlier runs", example = "25000000")
+        long importedRows,
+        @Schema(description = "Lines rejected from this file so far, including earlier runs", example = "12")
+        long rejectedRows,
+        @Schema(description = "Byte offset this run resumed from, 0 for a fresh import", example = "0")
+        long resumedFromByte,
+        @Schema(description = "Orders imported by this run", example = "25000000")
+        long importedThisRun,
+        @Schema(description = "Duration of this run in milliseconds", example = "180000")
+        long elapsedMillis,
+        @Schema(description = "Orders imported per second by this run", example = "138888.9")
+        double rowsPerSecond,
+        @Schema(description = "The first rejected lines of this run, with their byte offset and the reason")
+        List<String> errors) {}
@@ -1,10 +1,38 @@
 package com.technischools.marcel.order.model;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 public enum OrderStatus {
     NOWE, W_TRAKCIE, ZAKONCZONE, ANULOWANE;
 
+    /**
+     * Allowed status transitions: new orders are started or cancelled, orders in progress are completed or
+     * cancelled, completed and cancelled orders are final.
+     */
+    public boolean canTransitionTo(OrderStatus target) {
+        return switch (this) {
+            case NOWE -> target == W_TRAKCIE || target == ANULOWANE;
+            case W_TRAKCIE -> target == ZAKONCZONE || target == ANULOWANE;
+            case ZAKONCZONE, ANULOWANE -> false;
+        };
+    }
+
+    /**
+     * Statuses an order may be moved to {@code target} from, empty when no transition leads to it.
+     */
+    public static List<OrderStatus> sourcesOf(OrderStatus target) {
+        return Arrays.stream(values()).filter(status -> status.canTransitionTo(target)).toList();
+    }
+
+    /**
+     * Whether no transition leads out of this status.
+     */
+    public boolean isFinal() {
+        return this == ZAKONCZONE || this == ANULOWANE;
+    }
+
     public static Optional<OrderStatus> toValidStatus(String status) {
         if (status == null) {
             return Optional.empty();
@@ -0,0 +1,3 @@
+package com.technischools.marcel.order.model;
+
+public record OrderStatusCount(OrderStatus status, long count) {}
@@ -0,0 +1,20 @@
+package com.technischools.marcel.order.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+@Schema(description = "Number of orders in one status created within one time bucket")
+public record OrderTimeBucket(
+        @Schema(description = "Start of the bucket", example = "2024-03-31T12:00:00")
+        LocalDateTime bucketStart,
+        @Schema(description = "Order status", example = "NOWE")
+        OrderStatus status,
+        @Schema(description = "Number of orders", example = "17")
+        long count) {
+
+    // used by the aggregation queries, which group by the timestamp's calendar fields
+    public OrderTimeBucket(Integer year, Integer month, Integer day, Integer hour, OrderStatus status, Long count) {
+        this(LocalDateTime.of(year, month, day, hour, 0), status, count);
+    }
+}
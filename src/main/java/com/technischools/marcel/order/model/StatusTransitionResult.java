@@ -0,0 +1,5 @@
+package com.technischools.marcel.order.model;
+
+public enum StatusTransitionResult {
+    UPDATED, CONFLICT, NOT_FOUND, NOT_ALLOWED
+}
@@ -0,0 +1,14 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    @Query("select a.version from ArchivedOrder a where a.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
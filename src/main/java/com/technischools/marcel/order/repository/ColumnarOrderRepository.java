@@ -0,0 +1,784 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderStatusCount;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory, column-oriented {@link OrderStore} for read-heavy nodes, enabled with the {@code columnar} profile.
+ * Orders are kept in primitive arrays indexed by row instead of as entities:
+ * <ul>
+ *     <li>the id is implicit, row {@code n} holds order {@code n + 1} and ids are never reused,</li>
+ *     <li>customer ids in an {@code int[]}, creation timestamps as UTC epoch millis and versions in {@code long[]}s,</li>
+ *     <li>one bitmap of rows per {@link OrderStatus} plus a bitmap of live (not deleted) rows,</li>
+ *     <li>products dictionary-encoded, each row holds an {@code int[]} of product codes, with an inverted index of
+ *     rows per product code.</li>
+ * </ul>
+ * Reads return new {@link Order} snapshots, changes only take effect through {@code save}. The store is not
+ * transactional: writes are visible immediately and are not rolled back with the surrounding transaction.
+ * Timestamps are kept with millisecond precision.
+ * <p>
+ * The store starts empty unless the {@code journal} profile is active, see {@link OrderJournal}.
+ */
+@Repository
+@Primary
+@Profile("columnar")
+public class ColumnarOrderRepository implements OrderStore {
+    private static final int NULL_CUSTOMER = Integer.MIN_VALUE;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private static final int SNAPSHOT_CHUNK_ROWS = 10_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet live = new BitSet();
+    private final BitSet[] statusRows = new BitSet[STATUSES.length];
+    private final Map<String, Integer> productCodes = new HashMap<>();
+    private final List<String> productNames = new ArrayList<>();
+    private final List<BitSet> productRows = new ArrayList<>();
+    private int[] customerIds = new int[1024];
+    private long[] createdAt = new long[1024];
+    private long[] versions = new long[1024];
+    private int[][] products = new int[1024][];
+    private int rowCount;
+    private final OrderJournal journal;
+    // future of the last journal append, guarded by the write lock
+    private CompletableFuture<Void> lastAppend = CompletableFuture.completedFuture(null);
+
+    public ColumnarOrderRepository() {
+        this((OrderJournal) null);
+    }
+
+    /**
+     * With the {@code journal} profile, restores the orders from the journal and then logs every change to it.
+     */
+    @Autowired
+    public ColumnarOrderRepository(ObjectProvider<OrderJournal> journal) {
+        this(journal.getIfAvailable());
+    }
+
+    ColumnarOrderRepository(OrderJournal journal) {
+        for (int i = 0; i < statusRows.length; i++) {
+            statusRows[i] = new BitSet();
+        }
+        this.journal = journal;
+        if (journal != null) {
+            journal.recover(new OrderJournal.Replay() {
+                @Override
+                public void put(Order order) {
+                    restore(order);
+                }
+
+                @Override
+                public void delete(long id) {
+                    restoreDeletion(id);
+                }
+            });
+            journal.open(this::writeSnapshot);
+        }
+    }
+
+    @Override
+    public <S extends Order> S save(S order) {
+        lock.writeLock().lock();
+        try {
+            return saveRow(order);
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public <S extends Order> List<S> saveAll(Iterable<S> orders) {
+        lock.writeLock().lock();
+        try {
+            // one journal wait for the whole batch
+            List<S> saved = new ArrayList<>();
+            orders.forEach(order -> saved.add(saveRow(order)));
+            return saved;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public Optional<Order> findById(Long id) {
+        lock.readLock().lock();
+        try {
+            return isLive(id) ? Optional.of(readRow((int) (id - 1))) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Order> findWithProductsById(Long id) {
+        return findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        lock.readLock().lock();
+        try {
+            return isLive(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Long> findVersionById(Long id) {
+        lock.readLock().lock();
+        try {
+            return isLive(id) ? Optional.of(versions[(int) (id - 1)]) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<OrderStatus> findStatusById(Long id) {
+        lock.readLock().lock();
+        try {
+            return isLive(id) ? Optional.ofNullable(statusOf((int) (id - 1))) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> findAll() {
+        return readRows(live, 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findByStatus(OrderStatus status) {
+        return readRows(statusRows[status.ordinal()], 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit) {
+        return readRows(live, firstRowAfter(after), limit.isLimited() ? limit.max() : Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long after, Limit limit) {
+        return readRows(statusRows[status.ordinal()], firstRowAfter(after),
+                limit.isLimited() ? limit.max() : Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Order> findCustomerHistory(Integer customerId, OrderStatus status, Limit limit) {
+        return findCustomerHistoryBefore(customerId, status, null, null, limit);
+    }
+
+    /**
+     * Scans the customer id column (there is no per-customer index) and sorts the matching rows newest first.
+     */
+    @Override
+    public List<Order> findCustomerHistoryBefore(Integer customerId, OrderStatus status, LocalDateTime createdBefore,
+                                                 Long idBefore, Limit limit) {
+        long cursorMillis = createdBefore == null ? Long.MAX_VALUE : toMillis(createdBefore);
+        long cursorId = idBefore == null ? Long.MAX_VALUE : idBefore;
+        lock.readLock().lock();
+        try {
+            BitSet rows = status == null ? live : statusRows[status.ordinal()];
+            List<Integer> matches = new ArrayList<>();
+            for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                if (customerIds[row] == customerId
+                        && (createdAt[row] < cursorMillis || createdAt[row] == cursorMillis && row + 1L < cursorId)) {
+                    matches.add(row);
+                }
+            }
+            matches.sort(Comparator.<Integer>comparingLong(row -> createdAt[row]).thenComparingInt(row -> row).reversed());
+            int limitRows = limit.isLimited() ? Math.min(limit.max(), matches.size()) : matches.size();
+            List<Order> orders = new ArrayList<>(limitRows);
+            for (int i = 0; i < limitRows; i++) {
+                orders.add(readRow(matches.get(i)));
+            }
+            return orders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> findCreatedBetween(LocalDateTime from, LocalDateTime to, Limit limit) {
+        return findCreatedBetweenAfter(from, to, null, null, limit);
+    }
+
+    /**
+     * Scans the creation timestamp column and sorts the matching rows oldest first.
+     */
+    @Override
+    public List<Order> findCreatedBetweenAfter(LocalDateTime from, LocalDateTime to, LocalDateTime createdAfter,
+                                               Long idAfter, Limit limit) {
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        long cursorMillis = createdAfter == null ? Long.MIN_VALUE : toMillis(createdAfter);
+        long cursorId = idAfter == null ? 0 : idAfter;
+        lock.readLock().lock();
+        try {
+            List<Integer> matches = new ArrayList<>();
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                long millis = createdAt[row];
+                if (millis >= fromMillis && millis < toMillis
+                        && (millis > cursorMillis || millis == cursorMillis && row + 1L > cursorId)) {
+                    matches.add(row);
+                }
+            }
+            matches.sort(Comparator.<Integer>comparingLong(row -> createdAt[row]).thenComparingInt(row -> row));
+            int limitRows = limit.isLimited() ? Math.min(limit.max(), matches.size()) : matches.size();
+            List<Order> orders = new ArrayList<>(limitRows);
+            for (int i = 0; i < limitRows; i++) {
+                orders.add(readRow(matches.get(i)));
+            }
+            return orders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderTimeBucket> countPerHourAndStatus(LocalDateTime from, LocalDateTime to) {
+        return countPerBucketAndStatus(from, to, 3_600_000L);
+    }
+
+    @Override
+    public List<OrderTimeBucket> countPerDayAndStatus(LocalDateTime from, LocalDateTime to) {
+        return countPerBucketAndStatus(from, to, 86_400_000L);
+    }
+
+    /**
+     * One pass over the timestamp column and the status bitmaps, counting into a bucket -> per-status array map.
+     */
+    private List<OrderTimeBucket> countPerBucketAndStatus(LocalDateTime from, LocalDateTime to, long bucketMillis) {
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        Map<Long, long[]> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (OrderStatus status : STATUSES) {
+                BitSet rows = statusRows[status.ordinal()];
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    long millis = createdAt[row];
+                    if (millis >= fromMillis && millis < toMillis) {
+                        long bucket = Math.floorDiv(millis, bucketMillis) * bucketMillis;
+                        counts.computeIfAbsent(bucket, b -> new long[STATUSES.length])[status.ordinal()]++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<OrderTimeBucket> buckets = new ArrayList<>();
+        counts.forEach((bucket, perStatus) -> {
+            for (OrderStatus status : STATUSES) {
+                if (perStatus[status.ordinal()] > 0) {
+                    buckets.add(new OrderTimeBucket(fromMillis(bucket), status, perStatus[status.ordinal()]));
+                }
+            }
+        });
+        return buckets;
+    }
+
+    @Override
+    public List<Order> findContainingAnyProduct(Collection<String> products, Long after, Limit limit) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = new BitSet();
+            for (String product : products) {
+                Integer code = productCodes.get(product);
+                if (code != null) {
+                    rows.or(productRows.get(code));
+                }
+            }
+            return readRows(rows, firstRowAfter(after), limit.isLimited() ? limit.max() : Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Order> findContainingAllProducts(Collection<String> products, long productCount, Long after,
+                                                 Limit limit) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = null;
+            for (String product : products) {
+                Integer code = productCodes.get(product);
+                if (code == null) {
+                    return List.of();
+                }
+                if (rows == null) {
+                    rows = (BitSet) productRows.get(code).clone();
+                } else {
+                    rows.and(productRows.get(code));
+                }
+            }
+            if (rows == null) {
+                return List.of();
+            }
+            return readRows(rows, firstRowAfter(after), limit.isLimited() ? limit.max() : Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Order> streamAllByOrderByIdAsc() {
+        return streamRows(live);
+    }
+
+    @Override
+    public Stream<Order> streamByStatusOrderByIdAsc(OrderStatus status) {
+        return streamRows(statusRows[status.ordinal()]);
+    }
+
+    @Override
+    public List<String> findProductsById(Long id) {
+        lock.readLock().lock();
+        try {
+            if (!isLive(id) || products[(int) (id - 1)] == null) {
+                return List.of();
+            }
+            List<String> names = new ArrayList<>();
+            for (int code : products[(int) (id - 1)]) {
+                names.add(productNames.get(code));
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the store has no row locks, see the class comment
+    @Override
+    public Optional<Long> lockById(Long id) {
+        return existsById(id) ? Optional.of(id) : Optional.empty();
+    }
+
+    @Override
+    public int insertProduct(Long id, String product) {
+        lock.writeLock().lock();
+        try {
+            if (!isLive(id)) {
+                return 0;
+            }
+            int row = (int) (id - 1);
+            int[] codes = products[row] == null ? new int[0] : products[row];
+            int[] appended = Arrays.copyOf(codes, codes.length + 1);
+            appended[codes.length] = encodeProducts(List.of(product))[0];
+            setProducts(row, appended);
+            journal(row);
+            return 1;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public int deleteProducts(Long id, Collection<String> names) {
+        lock.writeLock().lock();
+        try {
+            if (!isLive(id) || products[(int) (id - 1)] == null) {
+                return 0;
+            }
+            int row = (int) (id - 1);
+            int[] kept = Arrays.stream(products[row])
+                    .filter(code -> !names.contains(productNames.get(code)))
+                    .toArray();
+            int deleted = products[row].length - kept.length;
+            setProducts(row, kept);
+            journal(row);
+            return deleted;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public int incrementVersion(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (!isLive(id)) {
+                return 0;
+            }
+            versions[(int) (id - 1)]++;
+            journal((int) (id - 1));
+            return 1;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public int compareAndSetStatus(Long id, OrderStatus expected, OrderStatus target) {
+        lock.writeLock().lock();
+        try {
+            if (!isLive(id) || !statusRows[expected.ordinal()].get((int) (id - 1))) {
+                return 0;
+            }
+            setStatus((int) (id - 1), target);
+            versions[(int) (id - 1)]++;
+            journal((int) (id - 1));
+            return 1;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public int updateStatusByIds(Collection<Long> ids, OrderStatus from, OrderStatus target) {
+        lock.writeLock().lock();
+        try {
+            int updated = 0;
+            for (Long id : ids) {
+                if (isLive(id) && statusRows[from.ordinal()].get((int) (id - 1))) {
+                    setStatus((int) (id - 1), target);
+                    versions[(int) (id - 1)]++;
+                    journal((int) (id - 1));
+                    updated++;
+                }
+            }
+            return updated;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public List<Long> findIdsByStatus(OrderStatus status, LocalDateTime createdBefore, Long after, Limit limit) {
+        long cutoff = createdBefore == null ? Long.MAX_VALUE : toMillis(createdBefore);
+        int max = limit.isLimited() ? limit.max() : Integer.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            BitSet rows = statusRows[status.ordinal()];
+            List<Long> ids = new ArrayList<>();
+            for (int row = rows.nextSetBit(firstRowAfter(after)); row >= 0 && ids.size() < max;
+                 row = rows.nextSetBit(row + 1)) {
+                if (createdBefore == null || createdAt[row] != NULL_TIMESTAMP && createdAt[row] < cutoff) {
+                    ids.add(row + 1L);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<OrderStatusCount> countGroupedByStatus() {
+        lock.readLock().lock();
+        try {
+            List<OrderStatusCount> counts = new ArrayList<>();
+            for (OrderStatus status : STATUSES) {
+                int count = statusRows[status.ordinal()].cardinality();
+                if (count > 0) {
+                    counts.add(new OrderStatusCount(status, count));
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void deleteById(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (isLive(id)) {
+                deleteRow((int) (id - 1));
+                journal((int) (id - 1));
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public void delete(Order order) {
+        deleteById(order.getId());
+    }
+
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            ((BitSet) live.clone()).stream().forEach(row -> {
+                deleteRow(row);
+                journal(row);
+            });
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    // callers must hold the lock
+
+    private boolean isLive(Long id) {
+        return id != null && id >= 1 && id <= rowCount && live.get((int) (id - 1));
+    }
+
+    private int firstRowAfter(Long id) {
+        return id == null || id < 0 ? 0 : (int) Math.min(id, Integer.MAX_VALUE);
+    }
+
+    private <S extends Order> S saveRow(S order) {
+        int row;
+        if (isLive(order.getId())) {
+            row = (int) (order.getId() - 1);
+            versions[row]++;
+        } else {
+            row = appendRow();
+            versions[row] = 0;
+            order.setId(row + 1L);
+        }
+        writeRow(row, order);
+        order.setVersion(versions[row]);
+        journal(row);
+        return order;
+    }
+
+    /**
+     * Appends the row's new image, or its deletion, to the journal. Called with the write lock held, so journal
+     * records are in the same order as the changes.
+     */
+    private void journal(int row) {
+        if (journal != null) {
+            lastAppend = live.get(row) ? journal.appendPut(readRow(row)) : journal.appendDelete(row + 1L);
+        }
+    }
+
+    /**
+     * Releases the write lock, then waits until the changes made under it are durable. Readers can see a change
+     * before it is durable, writers only return after.
+     */
+    private void unlockWrite() {
+        CompletableFuture<Void> durable = lastAppend;
+        lock.writeLock().unlock();
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            throw new DataAccessResourceFailureException("Could not write the order journal", e.getCause());
+        }
+    }
+
+    /**
+     * Dumps every live order to {@code sink}, plus a deletion of the last row when it is not live so that ids are
+     * not reused after a restore. Takes the read lock per chunk of rows, not for the whole dump: the journal
+     * records written meanwhile are full row images and are replayed on top of the snapshot.
+     */
+    private void writeSnapshot(OrderJournal.Replay sink) {
+        int row = 0;
+        while (true) {
+            lock.readLock().lock();
+            try {
+                if (row >= rowCount) {
+                    if (rowCount > 0 && !live.get(rowCount - 1)) {
+                        sink.delete(rowCount);
+                    }
+                    return;
+                }
+                int end = Math.min(row + SNAPSHOT_CHUNK_ROWS, rowCount);
+                for (int next = live.nextSetBit(row); next >= 0 && next < end; next = live.nextSetBit(next + 1)) {
+                    sink.put(readRow(next));
+                }
+                row = end;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    private void restore(Order order) {
+        int row = (int) (order.getId() - 1);
+        ensureRows(row + 1);
+        live.set(row);
+        versions[row] = order.getVersion();
+        writeRow(row, order);
+    }
+
+    private void restoreDeletion(long id) {
+        int row = (int) (id - 1);
+        ensureRows(row + 1);
+        if (live.get(row)) {
+            deleteRow(row);
+        }
+    }
+
+    // appends rows that are not live until there are at least count rows
+    private void ensureRows(int count) {
+        while (rowCount < count) {
+            live.clear(appendRow());
+        }
+    }
+
+    private int appendRow() {
+        int row = rowCount++;
+        if (row == customerIds.length) {
+            int capacity = customerIds.length * 2;
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            products = Arrays.copyOf(products, capacity);
+        }
+        live.set(row);
+        return row;
+    }
+
+    private void writeRow(int row, Order order) {
+        customerIds[row] = order.getCustomerId() == null ? NULL_CUSTOMER : order.getCustomerId();
+        createdAt[row] = order.getCreatedAt() == null ? NULL_TIMESTAMP : toMillis(order.getCreatedAt());
+        setStatus(row, order.getStatus());
+        setProducts(row, encodeProducts(order.getProducts()));
+    }
+
+    private void deleteRow(int row) {
+        live.clear(row);
+        setStatus(row, null);
+        setProducts(row, null);
+    }
+
+    private void setProducts(int row, int[] codes) {
+        if (products[row] != null) {
+            for (int code : products[row]) {
+                productRows.get(code).clear(row);
+            }
+        }
+        products[row] = codes;
+        if (codes != null) {
+            for (int code : codes) {
+                productRows.get(code).set(row);
+            }
+        }
+    }
+
+    private void setStatus(int row, OrderStatus status) {
+        for (BitSet rows : statusRows) {
+            rows.clear(row);
+        }
+        if (status != null) {
+            statusRows[status.ordinal()].set(row);
+        }
+    }
+
+    private OrderStatus statusOf(int row) {
+        for (OrderStatus status : STATUSES) {
+            if (statusRows[status.ordinal()].get(row)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    private int[] encodeProducts(List<String> names) {
+        if (names == null) {
+            return null;
+        }
+        int[] codes = new int[names.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = productCodes.computeIfAbsent(names.get(i), name -> {
+                productNames.add(name);
+                productRows.add(new BitSet());
+                return productNames.size() - 1;
+            });
+        }
+        return codes;
+    }
+
+    private Order readRow(int row) {
+        Order order = new Order();
+        order.setId(row + 1L);
+        order.setCustomerId(customerIds[row] == NULL_CUSTOMER ? null : customerIds[row]);
+        order.setCreatedAt(createdAt[row] == NULL_TIMESTAMP ? null : fromMillis(createdAt[row]));
+        order.setVersion(versions[row]);
+        order.setStatus(statusOf(row));
+        int[] codes = products[row];
+        if (codes != null) {
+            List<String> names = new ArrayList<>(codes.length);
+            for (int code : codes) {
+                names.add(productNames.get(code));
+            }
+            order.setProducts(names);
+        }
+        return order;
+    }
+
+    private List<Order> readRows(BitSet rows, int fromRow, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Order> orders = new ArrayList<>(Math.min(limit, rowCount));
+            for (int row = rows.nextSetBit(fromRow); row >= 0 && orders.size() < limit; row = rows.nextSetBit(row + 1)) {
+                orders.add(readRow(row));
+            }
+            return orders;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams a snapshot of the matching rows, reading each row under the lock only when the stream reaches it so
+     * slow consumers never block writers. Rows deleted after the snapshot was taken are skipped.
+     */
+    private Stream<Order> streamRows(BitSet rows) {
+        BitSet snapshot;
+        lock.readLock().lock();
+        try {
+            snapshot = (BitSet) rows.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return snapshot.stream()
+                .mapToObj(row -> {
+                    lock.readLock().lock();
+                    try {
+                        return live.get(row) ? readRow(row) : null;
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                })
+                .filter(Objects::nonNull);
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,7 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.OrderImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OrderImportCheckpointRepository extends JpaRepository<OrderImportCheckpoint, String> {
+}
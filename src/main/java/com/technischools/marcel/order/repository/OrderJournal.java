@@ -0,0 +1,406 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.Order;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Durable storage for {@link ColumnarOrderRepository}, enabled with the {@code journal} profile (which also enables
+ * {@code columnar}). Every change is appended to a journal segment as a binary row image, see
+ * {@link OrderJournalCodec}:
+ * <ul>
+ *     <li>appends are queued and written by a single thread that drains up to {@code max-batch-records} at a time
+ *     and fsyncs once per batch (group commit), each append's future completes when its batch is on disk,</li>
+ *     <li>after {@code snapshot-every-records} records or {@code snapshot-interval} the writer switches to a new
+ *     segment and a background thread writes a snapshot of the whole store, once it is on disk the older segments
+ *     and snapshots are deleted,</li>
+ *     <li>on startup the latest snapshot and the segments written since are replayed through memory-mapped reads,
+ *     stopping each segment at the first torn or corrupt record.</li>
+ * </ul>
+ * Files in {@code orders.journal.directory}: {@code snapshot-N.bin} holds everything written to segments below N,
+ * {@code journal-N.log} are the segments.
+ */
+@Component
+@Profile("journal")
+public class OrderJournal {
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAP_WINDOW_BYTES = 64 << 20;
+    private static final int SNAPSHOT_BUFFER_BYTES = 1 << 20;
+    private static final Append STOP = new Append(null, null);
+
+    /**
+     * Receives replayed records, and the snapshot contents from the store.
+     */
+    public interface Replay {
+        void put(Order order);
+
+        void delete(long id);
+    }
+
+    private record Append(ByteBuffer record, CompletableFuture<Void> done) {}
+
+    private final OrderJournalProperties properties;
+    private final Path directory;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private volatile boolean closed;
+    private Consumer<Replay> snapshotSource;
+    private Thread writer;
+    private volatile Thread snapshotter;
+    // owned by the writer thread once open
+    private FileChannel channel;
+    private long segment;
+    private long recordsSinceSnapshot;
+    private long lastSnapshotNanos;
+
+    public OrderJournal(OrderJournalProperties properties) {
+        this.properties = properties;
+        this.directory = properties.directory();
+    }
+
+    /**
+     * Replays the latest snapshot and the journal segments after it into {@code replay}.
+     */
+    public void recover(Replay replay) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            TreeMap<Long, Path> snapshots = new TreeMap<>();
+            TreeMap<Long, Path> segments = new TreeMap<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        Files.delete(file); // snapshot interrupted by a crash
+                    } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                        snapshots.put(number(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX), file);
+                    } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        segments.put(number(name, SEGMENT_PREFIX, SEGMENT_SUFFIX), file);
+                    }
+                }
+            }
+            long snapshotRecords = 0;
+            long first = 0;
+            if (!snapshots.isEmpty()) {
+                first = snapshots.lastKey();
+                snapshotRecords = replay(snapshots.lastEntry().getValue(), replay);
+            }
+            long journalRecords = 0;
+            for (Path file : segments.tailMap(first).values()) {
+                journalRecords += replay(file, replay);
+            }
+            segment = segments.isEmpty() ? first : Math.max(first, segments.lastKey() + 1);
+            recordsSinceSnapshot = journalRecords;
+            log.info("Recovered orders from {} snapshot and {} journal records in {} ms", snapshotRecords,
+                    journalRecords, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover the order journal from " + directory, e);
+        }
+    }
+
+    /**
+     * Starts accepting appends, in a new segment. {@code snapshotSource} dumps the current store when a snapshot
+     * is taken.
+     */
+    public void open(Consumer<Replay> snapshotSource) {
+        this.snapshotSource = snapshotSource;
+        try {
+            channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the order journal in " + directory, e);
+        }
+        lastSnapshotNanos = System.nanoTime();
+        writer = Thread.ofPlatform().name("order-journal").start(this::run);
+    }
+
+    public CompletableFuture<Void> appendPut(Order order) {
+        return append(OrderJournalCodec.encodePut(order));
+    }
+
+    public CompletableFuture<Void> appendDelete(long id) {
+        return append(OrderJournalCodec.encodeDelete(id));
+    }
+
+    /**
+     * Writes out the queued appends and stops the writer, waiting for a running snapshot to finish.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer != null) {
+            queue.add(STOP);
+            writer.join();
+        }
+        Thread running = snapshotter;
+        if (running != null) {
+            running.join();
+        }
+        failPending(new IllegalStateException("Order journal is closed"));
+    }
+
+    private CompletableFuture<Void> append(ByteBuffer record) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Order journal is closed"));
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(new Append(record, done));
+        return done;
+    }
+
+    private void run() {
+        List<Append> batch = new ArrayList<>(properties.maxBatchRecords());
+        boolean stopping = false;
+        while (!stopping) {
+            Append first;
+            try {
+                first = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, properties.maxBatchRecords() - 1);
+                stopping = batch.remove(STOP);
+                write(batch);
+                batch.clear();
+            }
+            if (!stopping) {
+                maybeSnapshot();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close order journal segment {}", segment, e);
+        }
+    }
+
+    private void write(List<Append> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            ByteBuffer[] records = new ByteBuffer[batch.size()];
+            for (int i = 0; i < records.length; i++) {
+                records[i] = batch.get(i).record();
+            }
+            int next = 0;
+            while (next < records.length) {
+                channel.write(records, next, records.length - next);
+                while (next < records.length && !records[next].hasRemaining()) {
+                    next++;
+                }
+            }
+            channel.force(false);
+            recordsSinceSnapshot += batch.size();
+            batch.forEach(append -> append.done().complete(null));
+        } catch (IOException e) {
+            batch.forEach(append -> append.done().completeExceptionally(e));
+        }
+    }
+
+    private void maybeSnapshot() {
+        boolean due = recordsSinceSnapshot >= properties.snapshotEveryRecords()
+                || (recordsSinceSnapshot > 0
+                && System.nanoTime() - lastSnapshotNanos >= properties.snapshotInterval().toNanos());
+        if (!due || !snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        // everything before the new segment goes into the snapshot
+        try {
+            FileChannel next = openSegment(segment + 1);
+            channel.close();
+            channel = next;
+            segment++;
+        } catch (IOException e) {
+            log.warn("Could not switch to order journal segment {}", segment + 1, e);
+            snapshotRunning.set(false);
+            return;
+        }
+        recordsSinceSnapshot = 0;
+        lastSnapshotNanos = System.nanoTime();
+        long covered = segment;
+        snapshotter = Thread.ofPlatform().name("order-journal-snapshot").start(() -> snapshot(covered));
+    }
+
+    private void snapshot(long covered) {
+        long start = System.nanoTime();
+        Path temp = directory.resolve(SNAPSHOT_PREFIX + covered + SNAPSHOT_SUFFIX + TEMP_SUFFIX);
+        try {
+            long records;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                SnapshotWriter snapshotWriter = new SnapshotWriter(out);
+                snapshotSource.accept(snapshotWriter);
+                snapshotWriter.flush();
+                out.force(true);
+                records = snapshotWriter.records;
+            }
+            Files.move(temp, directory.resolve(SNAPSHOT_PREFIX + covered + SNAPSHOT_SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            deleteBefore(covered);
+            log.info("Wrote order snapshot {} with {} records in {} ms", covered, records,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write order snapshot {}", covered, e);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // removed on the next recovery
+            }
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    private void deleteBefore(long covered) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                        && number(name, SEGMENT_PREFIX, SEGMENT_SUFFIX) < covered
+                        || name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                        && number(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < covered) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replays a snapshot or segment by mapping it in windows, remapping at a record boundary when a record crosses
+     * the end of a window. Returns the number of records read.
+     */
+    private static long replay(Path file, Replay replay) throws IOException {
+        long records = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            int windowBytes = MAP_WINDOW_BYTES;
+            while (position < size) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(size - position, windowBytes));
+                while (OrderJournalCodec.read(window, replay)) {
+                    records++;
+                }
+                int frame = OrderJournalCodec.frameLength(window);
+                int needed = frame < 0 ? OrderJournalCodec.HEADER_BYTES : frame;
+                position += window.position();
+                if (needed <= window.remaining() || position + needed > size) {
+                    if (position < size) {
+                        log.warn("Ignoring {} bytes after the last complete record of {}", size - position, file);
+                    }
+                    break;
+                }
+                windowBytes = Math.max(MAP_WINDOW_BYTES, needed);
+            }
+        }
+        return records;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+        return segmentChannel;
+    }
+
+    // makes created, renamed and deleted files durable, not supported on every platform
+    private void syncDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+            // best effort
+        }
+    }
+
+    private void failPending(Exception cause) {
+        List<Append> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.stream().filter(append -> append != STOP).forEach(append -> append.done().completeExceptionally(cause));
+    }
+
+    private static long number(String name, String prefix, String suffix) {
+        return Long.parseLong(name, prefix.length(), name.length() - suffix.length(), 10);
+    }
+
+    private static class SnapshotWriter implements Replay {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_BYTES);
+        private long records;
+
+        SnapshotWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        @Override
+        public void put(Order order) {
+            write(OrderJournalCodec.encodePut(order));
+        }
+
+        @Override
+        public void delete(long id) {
+            write(OrderJournalCodec.encodeDelete(id));
+        }
+
+        private void write(ByteBuffer record) {
+            try {
+                if (record.remaining() > buffer.remaining()) {
+                    flush();
+                }
+                if (record.remaining() > buffer.remaining()) {
+                    writeFully(record);
+                } else {
+                    buffer.put(record);
+                }
+                records++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                out.write(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary record format shared by journal segments and snapshots. Each record is framed as
+ * {@code int length, int crc32c, payload}, the payload is one of
+ * <ul>
+ *     <li>{@code PUT}: {@code byte 1, long id, int customerId, long createdAt (UTC epoch millis), byte status,
+ *     long version, int productCount, productCount x (short length, UTF-8 bytes)},</li>
+ *     <li>{@code DELETE}: {@code byte 2, long id}.</li>
+ * </ul>
+ * Nulls are stored as {@code Integer.MIN_VALUE} / {@code Long.MIN_VALUE} / {@code -1}. Records are full row images,
+ * so replaying one twice gives the same result.
+ */
+final class OrderJournalCodec {
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int NULL_CUSTOMER = Integer.MIN_VALUE;
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private OrderJournalCodec() {}
+
+    static ByteBuffer encodePut(Order order) {
+        List<byte[]> products = new ArrayList<>();
+        int size = 1 + Long.BYTES + Integer.BYTES + Long.BYTES + 1 + Long.BYTES + Integer.BYTES;
+        if (order.getProducts() != null) {
+            for (String product : order.getProducts()) {
+                byte[] bytes = product.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Product name too long for the journal: " + bytes.length + " bytes");
+                }
+                products.add(bytes);
+                size += Short.BYTES + bytes.length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + size);
+        buffer.position(HEADER_BYTES);
+        buffer.put(PUT);
+        buffer.putLong(order.getId());
+        buffer.putInt(order.getCustomerId() == null ? NULL_CUSTOMER : order.getCustomerId());
+        buffer.putLong(order.getCreatedAt() == null ? NULL_TIMESTAMP
+                : order.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.put(order.getStatus() == null ? -1 : (byte) order.getStatus().ordinal());
+        buffer.putLong(order.getVersion() == null ? 0 : order.getVersion());
+        buffer.putInt(order.getProducts() == null ? -1 : products.size());
+        for (byte[] bytes : products) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        return frame(buffer);
+    }
+
+    static ByteBuffer encodeDelete(long id) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + 1 + Long.BYTES);
+        buffer.position(HEADER_BYTES);
+        buffer.put(DELETE);
+        buffer.putLong(id);
+        return frame(buffer);
+    }
+
+    /**
+     * Decodes the record at the buffer's position into {@code replay} and moves past it. Returns {@code false},
+     * leaving the position unchanged, at the end of the data or at a torn or corrupt record, e.g. the tail of a
+     * segment that was being written when the process died.
+     */
+    static boolean read(ByteBuffer buffer, OrderJournal.Replay replay) {
+        int start = buffer.position();
+        if (buffer.remaining() < HEADER_BYTES) {
+            return false;
+        }
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + Integer.BYTES);
+        if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer payload = buffer.slice(start + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return false;
+        }
+        byte type = payload.get();
+        if (type == PUT) {
+            replay.put(decodePut(payload));
+        } else if (type == DELETE) {
+            replay.delete(payload.getLong());
+        } else {
+            return false;
+        }
+        buffer.position(start + HEADER_BYTES + length);
+        return true;
+    }
+
+    /**
+     * Returns the frame length of the record at the buffer's position, or -1 if not even the header is there.
+     */
+    static int frameLength(ByteBuffer buffer) {
+        return buffer.remaining() < HEADER_BYTES ? -1 : HEADER_BYTES + buffer.getInt(buffer.position());
+    }
+
+    private static Order decodePut(ByteBuffer payload) {
+        Order order = new Order();
+        order.setId(payload.getLong());
+        int customerId = payload.getInt();
+        order.setCustomerId(customerId == NULL_CUSTOMER ? null : customerId);
+        long createdAt = payload.getLong();
+        order.setCreatedAt(createdAt == NULL_TIMESTAMP ? null
+                : LocalDateTime.ofEpochSecond(Math.floorDiv(createdAt, 1000),
+                        (int) Math.floorMod(createdAt, 1000) * 1_000_000, ZoneOffset.UTC));
+        byte status = payload.get();
+        order.setStatus(status < 0 ? null : STATUSES[status]);
+        order.setVersion(payload.getLong());
+        int productCount = payload.getInt();
+        if (productCount >= 0) {
+            List<String> products = new ArrayList<>(productCount);
+            for (int i = 0; i < productCount; i++) {
+                byte[] bytes = new byte[payload.getShort()];
+                payload.get(bytes);
+                products.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            order.setProducts(products);
+        }
+        return order;
+    }
+
+    private static ByteBuffer frame(ByteBuffer buffer) {
+        int length = buffer.position() - HEADER_BYTES;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_BYTES, length));
+        buffer.putInt(0, length);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+}
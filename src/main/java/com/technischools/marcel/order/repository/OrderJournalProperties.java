@@ -0,0 +1,14 @@
+package com.technischools.marcel.order.repository;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.journal")
+public record OrderJournalProperties(
+        @DefaultValue("data/journal") Path directory,
+        @DefaultValue("1000000") long snapshotEveryRecords,
+        @DefaultValue("10m") Duration snapshotInterval,
+        @DefaultValue("4096") int maxBatchRecords) {}
@@ -1,6 +1,169 @@
 package com.technischools.marcel.order.repository;
 
 import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderStatusCount;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {}
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderStore {
+    String EXPORT_FETCH_SIZE = "500";
+
+    // unpaged lists fetch products in the same query; paged and streamed reads rely on @BatchSize instead
+    @Override
+    @EntityGraph(attributePaths = "products")
+    List<Order> findAll();
+
+    @EntityGraph(attributePaths = "products")
+    List<Order> findByStatus(OrderStatus status);
+
+    @EntityGraph(attributePaths = "products")
+    Optional<Order> findWithProductsById(Long id);
+
+    // conditional GETs compare versions without loading the order and its products
+    @Query("select o.version from Order o where o.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select o.status from Order o where o.id = :id")
+    Optional<OrderStatus> findStatusById(@Param("id") Long id);
+
+    // keyset pagination, both served by idx_orders_status_id / the primary key
+    List<Order> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    List<Order> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long after, Limit limit);
+
+    // customer history, newest first, range scans on idx_orders_customer_created
+    @Query("select o from Order o where o.customerId = :customerId and (:status is null or o.status = :status)"
+            + " order by o.createdAt desc, o.id desc")
+    List<Order> findCustomerHistory(@Param("customerId") Integer customerId, @Param("status") OrderStatus status,
+                                    Limit limit);
+
+    @Query("select o from Order o where o.customerId = :customerId and (:status is null or o.status = :status)"
+            + " and (o.createdAt < :createdAt or (o.createdAt = :createdAt and o.id < :id))"
+            + " order by o.createdAt desc, o.id desc")
+    List<Order> findCustomerHistoryBefore(@Param("customerId") Integer customerId, @Param("status") OrderStatus status,
+                                          @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                          Limit limit);
+
+    // creation time ranges, range scans on idx_orders_created
+    @Query("select o from Order o where o.createdAt >= :from and o.createdAt < :to order by o.createdAt, o.id")
+    List<Order> findCreatedBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Limit limit);
+
+    @Query("select o from Order o where o.createdAt >= :from and o.createdAt < :to"
+            + " and (o.createdAt > :createdAt or (o.createdAt = :createdAt and o.id > :id))"
+            + " order by o.createdAt, o.id")
+    List<Order> findCreatedBetweenAfter(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                        @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                        Limit limit);
+
+    @Query("select new com.technischools.marcel.order.model.OrderTimeBucket(year(o.createdAt), month(o.createdAt),"
+            + " day(o.createdAt), hour(o.createdAt), o.status, count(o))"
+            + " from Order o where o.createdAt >= :from and o.createdAt < :to"
+            + " group by year(o.createdAt), month(o.createdAt), day(o.createdAt), hour(o.createdAt), o.status")
+    List<OrderTimeBucket> countPerHourAndStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select new com.technischools.marcel.order.model.OrderTimeBucket(year(o.createdAt), month(o.createdAt),"
+            + " day(o.createdAt), 0, o.status, count(o))"
+            + " from Order o where o.createdAt >= :from and o.createdAt < :to"
+            + " group by year(o.createdAt), month(o.createdAt), day(o.createdAt), o.status")
+    List<OrderTimeBucket> countPerDayAndStatus(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // product lookups, served by idx_order_products_product on the products collection table
+    @Query("select o from Order o where o.id > :after and o.id in"
+            + " (select po.id from Order po join po.products p where p in :products) order by o.id")
+    List<Order> findContainingAnyProduct(@Param("products") Collection<String> products, @Param("after") Long after,
+                                         Limit limit);
+
+    @Query("select o from Order o where o.id > :after and o.id in"
+            + " (select po.id from Order po join po.products p where p in :products"
+            + " group by po.id having count(distinct p) = :productCount) order by o.id")
+    List<Order> findContainingAllProducts(@Param("products") Collection<String> products,
+                                          @Param("productCount") long productCount, @Param("after") Long after,
+                                          Limit limit);
+
+    // cursor-backed streams for exports, must be consumed inside a transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamAllByOrderByIdAsc();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Order> streamByStatusOrderByIdAsc(OrderStatus status);
+
+    // product deltas, written as single order_products rows instead of rewriting the whole collection
+    @Query("select p from Order o join o.products p where o.id = :id")
+    List<String> findProductsById(@Param("id") Long id);
+
+    // row lock without loading the entity, so that a read-diff-write of the products is not interleaved
+    @Query(value = "select id from orders where id = :id for update", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "insert into order_products (order_id, product) values (:id, :product)", nativeQuery = true)
+    int insertProduct(@Param("id") Long id, @Param("product") String product);
+
+    @Modifying
+    @Query(value = "delete from order_products where order_id = :id and product in (:products)", nativeQuery = true)
+    int deleteProducts(@Param("id") Long id, @Param("products") Collection<String> products);
+
+    @Modifying
+    @Query("update Order o set o.version = o.version + 1 where o.id = :id")
+    int incrementVersion(@Param("id") Long id);
+
+    // set-based status transitions, never load entities into the persistence context;
+    // compare-and-set, the affected row count tells whether the order was still in the expected status
+    @Modifying
+    @Query("update Order o set o.status = :target, o.version = o.version + 1 where o.id = :id and o.status = :expected")
+    int compareAndSetStatus(@Param("id") Long id, @Param("expected") OrderStatus expected,
+                            @Param("target") OrderStatus target);
+
+    @Modifying
+    @Query("update Order o set o.status = :target, o.version = o.version + 1 where o.id in :ids and o.status = :from")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("from") OrderStatus from,
+                          @Param("target") OrderStatus target);
+
+    // keyset chunks of a bulk status update: the next ids in a status, each chunk is then updated by id
+    @Query("select o.id from Order o where o.status = :status and o.id > :after"
+            + " and (:createdBefore is null or o.createdAt < :createdBefore) order by o.id")
+    List<Long> findIdsByStatus(@Param("status") OrderStatus status, @Param("createdBefore") LocalDateTime createdBefore,
+                               @Param("after") Long after, Limit limit);
+
+    // archival of terminal orders: find candidates in id order, lock them, then move them out in one transaction
+    @Query("select o.id from Order o where o.id > :after and o.status in :statuses and o.createdAt < :createdBefore"
+            + " order by o.id")
+    List<Long> findArchivableIds(@Param("statuses") Collection<OrderStatus> statuses,
+                                 @Param("createdBefore") LocalDateTime createdBefore, @Param("after") Long after,
+                                 Limit limit);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id in :ids order by o.id")
+    List<Order> findAllForUpdateByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "delete from order_products where order_id in (:ids)", nativeQuery = true)
+    int deleteProductsByOrderIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.technischools.marcel.order.model.OrderStatusCount(o.status, count(o))"
+            + " from Order o where o.status is not null group by o.status")
+    List<OrderStatusCount> countGroupedByStatus();
+}
@@ -0,0 +1,84 @@
+package com.technischools.marcel.order.repository;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderStatusCount;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The order operations the services need, implemented by the JPA {@link OrderRepository} and by the in-memory
+ * {@link ColumnarOrderRepository}. Queries and their indexes are documented on {@link OrderRepository}.
+ */
+public interface OrderStore {
+    <S extends Order> S save(S order);
+
+    <S extends Order> List<S> saveAll(Iterable<S> orders);
+
+    Optional<Order> findById(Long id);
+
+    boolean existsById(Long id);
+
+    void delete(Order order);
+
+    List<Order> findAll();
+
+    List<Order> findByStatus(OrderStatus status);
+
+    Optional<Order> findWithProductsById(Long id);
+
+    Optional<Long> findVersionById(Long id);
+
+    Optional<OrderStatus> findStatusById(Long id);
+
+    List<Order> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    List<Order> findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long after, Limit limit);
+
+    List<Order> findCustomerHistory(Integer customerId, OrderStatus status, Limit limit);
+
+    List<Order> findCustomerHistoryBefore(Integer customerId, OrderStatus status, LocalDateTime createdAt, Long id,
+                                          Limit limit);
+
+    List<Order> findCreatedBetween(LocalDateTime from, LocalDateTime to, Limit limit);
+
+    List<Order> findCreatedBetweenAfter(LocalDateTime from, LocalDateTime to, LocalDateTime createdAt, Long id,
+                                        Limit limit);
+
+    List<OrderTimeBucket> countPerHourAndStatus(LocalDateTime from, LocalDateTime to);
+
+    List<OrderTimeBucket> countPerDayAndStatus(LocalDateTime from, LocalDateTime to);
+
+    List<Order> findContainingAnyProduct(Collection<String> products, Long after, Limit limit);
+
+    List<Order> findContainingAllProducts(Collection<String> products, long productCount, Long after, Limit limit);
+
+    // must be consumed inside a transaction and closed
+    Stream<Order> streamAllByOrderByIdAsc();
+
+    Stream<Order> streamByStatusOrderByIdAsc(OrderStatus status);
+
+    List<String> findProductsById(Long id);
+
+    Optional<Long> lockById(Long id);
+
+    int insertProduct(Long id, String product);
+
+    int deleteProducts(Long id, Collection<String> products);
+
+    int incrementVersion(Long id);
+
+    int compareAndSetStatus(Long id, OrderStatus expected, OrderStatus target);
+
+    int updateStatusByIds(Collection<Long> ids, OrderStatus from, OrderStatus target);
+
+    List<Long> findIdsByStatus(OrderStatus status, LocalDateTime createdBefore, Long after, Limit limit);
+
+    List<OrderStatusCount> countGroupedByStatus();
+}
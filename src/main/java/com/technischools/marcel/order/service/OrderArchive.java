@@ -0,0 +1,132 @@
+package com.technischools.marcel.order.service;
+
+import com.technischools.marcel.order.model.ArchivedOrder;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.ArchivedOrderRepository;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Cold store of archived orders. Each order is one {@code archived_orders} row whose product list is packed as
+ * {@code int count, count x modified UTF-8 string} and deflated when that makes it smaller. The first byte tells
+ * which: {@value #PACKED} or {@value #DEFLATED}.
+ */
+@Component
+public class OrderArchive {
+    private static final byte PACKED = 0;
+    private static final byte DEFLATED = 1;
+
+    private final ArchivedOrderRepository archivedOrderRepository;
+
+    public OrderArchive(ArchivedOrderRepository archivedOrderRepository) {
+        this.archivedOrderRepository = archivedOrderRepository;
+    }
+
+    public void store(Collection<Order> orders, LocalDateTime archivedAt) {
+        archivedOrderRepository.saveAll(orders.stream().map(order -> pack(order, archivedAt)).toList());
+    }
+
+    public Optional<Order> find(Long id) {
+        return archivedOrderRepository.findById(id).map(OrderArchive::unpack);
+    }
+
+    public Optional<Long> findVersion(Long id) {
+        return archivedOrderRepository.findVersionById(id);
+    }
+
+    /**
+     * Deletes an archived order. Returns its status, or empty when the order is not archived.
+     */
+    public Optional<OrderStatus> delete(Long id) {
+        return archivedOrderRepository.findById(id).map(archived -> {
+            archivedOrderRepository.delete(archived);
+            return archived.getStatus();
+        });
+    }
+
+    static ArchivedOrder pack(Order order, LocalDateTime archivedAt) {
+        ArchivedOrder archived = new ArchivedOrder();
+        archived.setId(order.getId());
+        archived.setCustomerId(order.getCustomerId());
+        archived.setCreatedAt(order.getCreatedAt());
+        archived.setStatus(order.getStatus());
+        archived.setVersion(order.getVersion());
+        archived.setArchivedAt(archivedAt);
+        archived.setProducts(packProducts(order.getProducts()));
+        return archived;
+    }
+
+    static Order unpack(ArchivedOrder archived) {
+        Order order = new Order();
+        order.setId(archived.getId());
+        order.setCustomerId(archived.getCustomerId());
+        order.setCreatedAt(archived.getCreatedAt());
+        order.setStatus(archived.getStatus());
+        order.setVersion(archived.getVersion());
+        order.setProducts(unpackProducts(archived.getProducts()));
+        return order;
+    }
+
+    static byte[] packProducts(List<String> products) {
+        try {
+            ByteArrayOutputStream packed = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(packed);
+            out.writeInt(products == null ? -1 : products.size());
+            if (products != null) {
+                for (String product : products) {
+                    out.writeUTF(product);
+                }
+            }
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+            deflated.write(DEFLATED);
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (DeflaterOutputStream compressed = new DeflaterOutputStream(deflated, deflater)) {
+                packed.writeTo(compressed);
+            } finally {
+                deflater.end();
+            }
+            if (deflated.size() < packed.size() + 1) {
+                return deflated.toByteArray();
+            }
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(packed.size() + 1);
+            raw.write(PACKED);
+            packed.writeTo(raw);
+            return raw.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static List<String> unpackProducts(byte[] bytes) {
+        InputStream source = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        try (DataInputStream in = new DataInputStream(bytes[0] == DEFLATED ? new InflaterInputStream(source) : source)) {
+            int count = in.readInt();
+            if (count < 0) {
+                return null;
+            }
+            List<String> products = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                products.add(in.readUTF());
+            }
+            return products;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
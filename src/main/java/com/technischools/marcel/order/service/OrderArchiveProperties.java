@@ -0,0 +1,13 @@
+package com.technischools.marcel.order.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.archive")
+public record OrderArchiveProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30d") Duration minAge,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("100ms") Duration pauseBetweenBatches) {}
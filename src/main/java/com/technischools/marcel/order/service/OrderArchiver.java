@@ -0,0 +1,118 @@
+package com.technischools.marcel.order.service;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves orders in a final status that are older than {@code orders.archive.min-age} from {@code orders} and
+ * {@code order_products} into the {@link OrderArchive}, every {@code orders.archive.interval}. Each batch of at most
+ * {@code orders.archive.batch-size} orders is one short transaction that locks only the rows it moves, with a pause
+ * between batches, so live traffic is never blocked for long.
+ * <p>
+ * Archived orders are still returned by {@code GET /orders/{id}}, but no longer by the list, search and histogram
+ * queries, and they are no longer counted in the status counts. Archiving is not published to the change feed.
+ * The archiver does not run with the columnar store, whose journal would drop orders the in-memory archive then
+ * loses on restart.
+ */
+@Component
+@Profile("!columnar")
+public class OrderArchiver {
+    private static final List<OrderStatus> FINAL_STATUSES = Arrays.stream(OrderStatus.values())
+            .filter(OrderStatus::isFinal)
+            .toList();
+
+    private final OrderRepository orderRepository;
+    private final OrderArchive archive;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderCache orderCache;
+    private final OrderStatusCounter statusCounter;
+    private final OrderWatermark watermark;
+    private final OrderArchiveProperties properties;
+
+    public OrderArchiver(OrderRepository orderRepository, OrderArchive archive,
+                         PlatformTransactionManager transactionManager, OrderCache orderCache,
+                         OrderStatusCounter statusCounter, OrderWatermark watermark,
+                         OrderArchiveProperties properties) {
+        this.orderRepository = orderRepository;
+        this.archive = archive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderCache = orderCache;
+        this.statusCounter = statusCounter;
+        this.watermark = watermark;
+        this.properties = properties;
+    }
+
+    @Scheduled(initialDelayString = "${orders.archive.interval:5m}", fixedDelayString = "${orders.archive.interval:5m}")
+    public void archiveDueOrders() {
+        if (properties.enabled()) {
+            archive(LocalDateTime.now().minus(properties.minAge()));
+        }
+    }
+
+    /**
+     * Archives every order in a final status created before {@code createdBefore}. Returns the number of archived
+     * orders.
+     */
+    public int archive(LocalDateTime createdBefore) {
+        int archived = 0;
+        long after = 0;
+        while (true) {
+            List<Long> ids = orderRepository.findArchivableIds(FINAL_STATUSES, createdBefore, after,
+                    Limit.of(properties.batchSize()));
+            if (ids.isEmpty()) {
+                break;
+            }
+            archived += transactionTemplate.execute(transaction -> archiveBatch(ids, createdBefore));
+            after = ids.getLast();
+            if (ids.size() < properties.batchSize() || !pause()) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            watermark.advance();
+        }
+        return archived;
+    }
+
+    private int archiveBatch(List<Long> ids, LocalDateTime createdBefore) {
+        // the candidates were read without locks, keep only those that still qualify once locked
+        List<Order> orders = orderRepository.findAllForUpdateByIdIn(ids).stream()
+                .filter(order -> order.getStatus() != null && order.getStatus().isFinal())
+                .filter(order -> order.getCreatedAt() != null && order.getCreatedAt().isBefore(createdBefore))
+                .toList();
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        List<Long> archivedIds = orders.stream().map(Order::getId).toList();
+        archive.store(orders, LocalDateTime.now());
+        orderRepository.deleteProductsByOrderIdIn(archivedIds);
+        orderRepository.deleteAllByIdInBatch(archivedIds);
+        orders.stream()
+                .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()))
+                .forEach((status, count) -> statusCounter.add(status, -count));
+        orderCache.evictAll(archivedIds);
+        return orders.size();
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.pauseBetweenBatches());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
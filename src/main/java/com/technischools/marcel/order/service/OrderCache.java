@@ -0,0 +1,99 @@
+package com.technischools.marcel.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderCacheStats;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, expiring read-through cache of orders by id. Only found orders are cached. The loader must return
+ * orders with their products loaded. The cache keeps a plain copy of each, never the entity itself, which with
+ * open-in-view stays managed by the persistence context of the request that loaded it. Cached orders are shared
+ * between requests and must not be modified.
+ */
+@Component
+public class OrderCache {
+    private final boolean enabled;
+    private final Cache<Long, Order> cache;
+
+    public OrderCache(OrderCacheProperties properties) {
+        this.enabled = properties.enabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Order> get(Long id, Function<Long, Optional<Order>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).map(OrderCache::copyOf).orElse(null)));
+    }
+
+    /**
+     * The cached order, without loading it on a miss.
+     */
+    public Optional<Order> peek(Long id) {
+        return enabled ? Optional.ofNullable(cache.getIfPresent(id)) : Optional.empty();
+    }
+
+    /**
+     * Evicts the order now and, when called inside a transaction, once more after it completes so that a
+     * concurrent read cannot re-cache the pre-commit state.
+     */
+    public void evict(Long id) {
+        cache.invalidate(id);
+        afterCompletion(() -> cache.invalidate(id));
+    }
+
+    public void evictAll(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+        afterCompletion(() -> cache.invalidateAll(ids));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        afterCompletion(cache::invalidateAll);
+    }
+
+    public OrderCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new OrderCacheStats(enabled, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    /**
+     * A detached copy of the order, changes to it do not reach the cached or any other caller's order.
+     */
+    static Order copyOf(Order order) {
+        Order copy = new Order();
+        copy.setId(order.getId());
+        copy.setCustomerId(order.getCustomerId());
+        copy.setProducts(order.getProducts() == null ? null : new ArrayList<>(order.getProducts()));
+        copy.setCreatedAt(order.getCreatedAt());
+        copy.setStatus(order.getStatus());
+        copy.setVersion(order.getVersion());
+        return copy;
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
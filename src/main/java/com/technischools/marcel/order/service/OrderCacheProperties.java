@@ -0,0 +1,12 @@
+package com.technischools.marcel.order.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "orders.cache")
+public record OrderCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") long maxEntries,
+        @DefaultValue("5m") Duration expireAfterWrite) {}
@@ -0,0 +1,174 @@
+package com.technischools.marcel.order.service;
+
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory feed of committed order changes. The last {@code bufferSize} events are kept in a ring buffer so that
+ * subscribers can resume from a sequence number after reconnecting.
+ * <p>
+ * Publishing never blocks the writer: each subscriber has its own queue drained by its own virtual thread. A
+ * subscriber that falls more than {@code maxPendingEvents} behind is disconnected and has to resume from the ring
+ * buffer.
+ */
+@Component
+public class OrderChangeFeed {
+    private final OrderChangeEvent[] ring;
+    private final int maxPendingEvents;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // guarded by this, as are the ring buffer contents
+    private long lastSequence;
+
+    public OrderChangeFeed(OrderChangeFeedProperties properties) {
+        this.ring = new OrderChangeEvent[properties.bufferSize()];
+        this.maxPendingEvents = properties.maxPendingEvents();
+    }
+
+    /**
+     * Receives the events of one subscription, always from the same thread.
+     */
+    public interface Sink {
+        void send(OrderChangeEvent event) throws IOException;
+
+        // called when the feed ends the subscription, not after cancel()
+        void close();
+    }
+
+    /**
+     * Publishes a change once the current transaction commits, or right away outside a transaction. Changes of
+     * rolled back transactions are never published.
+     */
+    public void publish(OrderChangeEvent.Type type, Long orderId, OrderStatus status, OrderStatus previousStatus) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(type, orderId, status, previousStatus);
+                }
+            });
+        } else {
+            append(type, orderId, status, previousStatus);
+        }
+    }
+
+    /**
+     * Subscribes to the changes of orders entering or leaving {@code status} (all orders when empty). With
+     * {@code after}, buffered events following that sequence number are replayed first. When they are no longer
+     * buffered, the sequence number is from before a restart, or there are more than {@code maxPendingEvents} of
+     * them, the first event is a {@code RESET} instead.
+     */
+    public synchronized Subscription subscribe(Optional<OrderStatus> status, Optional<Long> after, Sink sink) {
+        Subscription subscription = new Subscription(status, sink);
+        after.ifPresent(sequence -> {
+            List<OrderChangeEvent> missed = bufferedAfter(sequence, subscription);
+            // checked before queueing: a longer replay would only get the subscriber disconnected again
+            if (missed == null || missed.size() > maxPendingEvents) {
+                subscription.queue.add(new OrderChangeEvent(lastSequence, OrderChangeEvent.Type.RESET, null, null,
+                        null, LocalDateTime.now()));
+            } else {
+                subscription.queue.addAll(missed);
+            }
+        });
+        subscriptions.add(subscription);
+        subscription.sender.start();
+        return subscription;
+    }
+
+    // the buffered events after the sequence number that the subscription accepts, null when some are gone
+    private List<OrderChangeEvent> bufferedAfter(long sequence, Subscription subscription) {
+        long oldest = Math.max(1, lastSequence - ring.length + 1);
+        if (sequence < oldest - 1 || sequence > lastSequence) {
+            return null;
+        }
+        List<OrderChangeEvent> events = new ArrayList<>();
+        for (long next = sequence + 1; next <= lastSequence; next++) {
+            OrderChangeEvent event = ring[(int) (next % ring.length)];
+            if (subscription.accepts(event)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    private synchronized void append(OrderChangeEvent.Type type, Long orderId, OrderStatus status,
+                                     OrderStatus previousStatus) {
+        OrderChangeEvent event = new OrderChangeEvent(++lastSequence, type, orderId, status, previousStatus,
+                LocalDateTime.now());
+        ring[(int) (event.sequence() % ring.length)] = event;
+        subscriptions.forEach(subscription -> subscription.offer(event));
+    }
+
+    public final class Subscription {
+        private final Optional<OrderStatus> status;
+        private final Sink sink;
+        private final BlockingQueue<OrderChangeEvent> queue = new LinkedBlockingQueue<>();
+        private final Thread sender;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(Optional<OrderStatus> status, Sink sink) {
+            this.status = status;
+            this.sink = sink;
+            this.sender = Thread.ofVirtual().name("order-changes").unstarted(this::run);
+        }
+
+        public void cancel() {
+            close(false);
+        }
+
+        private boolean accepts(OrderChangeEvent event) {
+            return status.map(event::concerns).orElse(true);
+        }
+
+        private void offer(OrderChangeEvent event) {
+            if (closed.get() || !accepts(event)) {
+                return;
+            }
+            if (queue.size() >= maxPendingEvents) {
+                close(true);
+                return;
+            }
+            queue.add(event);
+        }
+
+        private void run() {
+            try {
+                while (!closed.get()) {
+                    sink.send(queue.take());
+                }
+            } catch (IOException | RuntimeException e) {
+                close(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void close(boolean closeSink) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscriptions.remove(this);
+            sender.interrupt();
+            if (closeSink) {
+                sink.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.technischools.marcel.order.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "orders.changes")
+public record OrderChangeFeedProperties(
+        @DefaultValue("10000") int bufferSize,
+        @DefaultValue("1000") int maxPendingEvents) {}
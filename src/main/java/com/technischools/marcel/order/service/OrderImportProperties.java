@@ -0,0 +1,15 @@
+package com.technischools.marcel.order.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@ConfigurationProperties(prefix = "orders.import")
+public record OrderImportProperties(
+        @DefaultValue("data/import") Path directory,
+        @DefaultValue("4MB") DataSize chunkSize,
+        @DefaultValue("1000") int batchSize,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("100") int maxReportedErrors) {}
@@ -0,0 +1,416 @@
+package com.technischools.marcel.order.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderImportCheckpoint;
+import com.technischools.marcel.order.model.OrderImportResult;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderImportCheckpointRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of orders from CSV or NDJSON files in {@code orders.import.directory}, for migrating data that would
+ * take far too long through {@code POST /orders}.
+ * <p>
+ * The file is memory-mapped in chunks of {@code orders.import.chunk-size} cut at line ends. Up to
+ * {@code orders.import.parallelism} chunks are parsed at the same time on a private pool, while the calling thread
+ * writes the parsed chunks in file order. Each chunk is one transaction of JDBC batch inserts into {@code orders} and
+ * {@code order_products}, and it moves the file's {@link OrderImportCheckpoint} to the end of the chunk. An
+ * interrupted import therefore continues after the last committed chunk and never inserts a line twice. Ids come
+ * from the entity's own Hibernate id generator, so imports and {@code POST /orders} share one pooled optimizer over
+ * {@code orders_seq}.
+ * <p>
+ * CSV files start with a header naming the columns {@code customerId} and {@code products} (separated by {@code |}),
+ * and optionally {@code createdAt} (ISO date-time) and {@code status}. Fields may be quoted, but not span lines.
+ * NDJSON files have one order per line, in the same shape as {@code POST /orders} takes. Missing statuses and
+ * creation times get the same defaults as in {@link OrderService#createOrder}. Invalid lines are skipped and
+ * counted. Imported orders are not published to the change feed. The importer does not run with the columnar
+ * store, which does not keep orders in these tables.
+ */
+@Component
+@Profile("!columnar")
+public class OrderImporter {
+    private static final String INSERT_ORDER =
+            "insert into orders (id, customer_id, created_at, status, version) values (?, ?, ?, ?, 0)";
+    private static final String INSERT_PRODUCT = "insert into order_products (order_id, product) values (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final IdentifierGenerator idGenerator;
+    private final OrderImportCheckpointRepository checkpoints;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader orderReader;
+    private final OrderStatusCounter statusCounter;
+    private final OrderWatermark watermark;
+    private final OrderImportProperties properties;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public OrderImporter(JdbcTemplate jdbcTemplate, EntityManager entityManager,
+                         EntityManagerFactory entityManagerFactory, OrderImportCheckpointRepository checkpoints,
+                         PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                         OrderStatusCounter statusCounter, OrderWatermark watermark,
+                         OrderImportProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        // the generator JPA persists use: its pooled optimizer hands out every block exactly once, for both
+        this.idGenerator = (IdentifierGenerator) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(Order.class).getGenerator();
+        this.checkpoints = checkpoints;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderReader = objectMapper.readerFor(Order.class);
+        this.statusCounter = statusCounter;
+        this.watermark = watermark;
+        this.properties = properties;
+    }
+
+    /**
+     * Imports {@code fileName}, a path relative to the import directory, continuing from its checkpoint unless
+     * {@code restart} is set.
+     *
+     * @throws NoSuchFileException if the file does not exist
+     * @throws IllegalArgumentException if the name points outside the import directory, the format is not supported
+     *                                  or the CSV header is invalid
+     * @throws IllegalStateException if the same file is already being imported, or has a checkpoint but was
+     *                               replaced since
+     */
+    public OrderImportResult importFile(String fileName, boolean restart) throws IOException {
+        Path directory = properties.directory().toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("File must be inside the import directory");
+        }
+        String key = directory.relativize(file).toString();
+        Format format = Format.of(file);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(key);
+        }
+        if (!running.add(key)) {
+            throw new IllegalStateException("An import of " + key + " is already running");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             ExecutorService parsers = Executors.newFixedThreadPool(properties.parallelism())) {
+            return run(key, format, channel, channel.size(), restart, parsers);
+        } finally {
+            running.remove(key);
+        }
+    }
+
+    private OrderImportResult run(String key, Format format, FileChannel channel, long size, boolean restart,
+                                  ExecutorService parsers) throws IOException {
+        OrderImportCheckpoint checkpoint =
+                transactionTemplate.execute(transaction -> startCheckpoint(key, size, restart));
+        LineParser parser = format == Format.CSV ? csvParser(readFirstLine(channel)) : this::parseJson;
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        long resumedFrom = checkpoint.getCommittedBytes();
+        long importedThisRun = 0;
+        List<String> errors = new ArrayList<>();
+        Deque<Future<ParsedChunk>> pending = new ArrayDeque<>();
+        long position = resumedFrom;
+        while (position < size || !pending.isEmpty()) {
+            // keep every parser busy and one chunk ready while the previous one is written
+            while (position < size && pending.size() <= properties.parallelism()) {
+                Chunk chunk = nextChunk(channel, position, size);
+                pending.add(parsers.submit(() -> parse(chunk, parser, format, now)));
+                position = chunk.end();
+            }
+            ParsedChunk parsed = await(pending.removeFirst());
+            checkpoint = transactionTemplate.execute(transaction -> write(key, parsed));
+            importedThisRun += parsed.orders().size();
+            parsed.errors().stream()
+                    .limit(Math.max(0, properties.maxReportedErrors() - errors.size()))
+                    .forEach(errors::add);
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        double seconds = Math.max(elapsedNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        return new OrderImportResult(key, checkpoint.getImportedRows(), checkpoint.getRejectedRows(), resumedFrom,
+                importedThisRun, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), importedThisRun / seconds, errors);
+    }
+
+    private OrderImportCheckpoint startCheckpoint(String key, long size, boolean restart) {
+        OrderImportCheckpoint existing = checkpoints.findById(key).orElse(null);
+        if (existing != null && !restart) {
+            if (existing.getFileSize() != size) {
+                throw new IllegalStateException("File " + key + " changed since its import started, "
+                        + "import it with restart to start over");
+            }
+            return existing;
+        }
+        if (existing != null) {
+            checkpoints.delete(existing);
+        }
+        return new OrderImportCheckpoint(key, size);
+    }
+
+    private OrderImportCheckpoint write(String key, ParsedChunk parsed) {
+        OrderImportCheckpoint checkpoint = checkpoints.findById(key).orElseGet(() -> new OrderImportCheckpoint(key, 0));
+        if (checkpoint.getCommittedBytes() != parsed.start()) {
+            throw new IllegalStateException("Checkpoint of " + key + " was moved by another import");
+        }
+        List<Order> orders = parsed.orders();
+        List<Object[]> products = new ArrayList<>();
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        for (Order order : orders) {
+            order.setId((Long) idGenerator.generate(session, order));
+            for (String product : order.getProducts()) {
+                products.add(new Object[]{order.getId(), product});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER, orders, properties.batchSize(), (statement, order) -> {
+            statement.setLong(1, order.getId());
+            statement.setInt(2, order.getCustomerId());
+            statement.setObject(3, order.getCreatedAt());
+            statement.setString(4, order.getStatus().name());
+        });
+        jdbcTemplate.batchUpdate(INSERT_PRODUCT, products, properties.batchSize(), (statement, row) -> {
+            statement.setLong(1, (Long) row[0]);
+            statement.setString(2, (String) row[1]);
+        });
+        checkpoint.setFileSize(parsed.fileSize());
+        checkpoint.setCommittedBytes(parsed.end());
+        checkpoint.setImportedRows(checkpoint.getImportedRows() + orders.size());
+        checkpoint.setRejectedRows(checkpoint.getRejectedRows() + parsed.rejected());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        OrderImportCheckpoint saved = checkpoints.save(checkpoint);
+        orders.stream()
+                .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()))
+                .forEach(statusCounter::add);
+        if (!orders.isEmpty()) {
+            watermark.advance();
+        }
+        return saved;
+    }
+
+    /**
+     * Maps the next chunk of at most {@code chunk-size} bytes starting at {@code position}, ending after the last
+     * complete line in it (or at the end of the file).
+     */
+    private Chunk nextChunk(FileChannel channel, long position, long size) throws IOException {
+        long length = Math.min(properties.chunkSize().toBytes(), size - position);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int end = (int) length;
+        if (position + length < size) {
+            while (end > 0 && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                throw new IllegalArgumentException("Line at byte " + position + " is longer than the chunk size");
+            }
+        }
+        return new Chunk(position, position + end, size, buffer.slice(0, end));
+    }
+
+    private ParsedChunk parse(Chunk chunk, LineParser parser, Format format, LocalDateTime now) {
+        byte[] bytes = new byte[chunk.buffer().remaining()];
+        chunk.buffer().get(bytes);
+        List<Order> orders = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        long rejected = 0;
+        int lineStart = 0;
+        // the CSV header is only part of the first chunk
+        boolean skipLine = format == Format.CSV && chunk.start() == 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && bytes[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (skipLine) {
+                skipLine = false;
+            } else if (contentEnd > lineStart) {
+                String error;
+                try {
+                    Order order = parser.parse(bytes, lineStart, contentEnd - lineStart);
+                    error = validate(order, now);
+                    if (error == null) {
+                        orders.add(order);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // parser messages can span lines (Jackson adds the source location), keep the first one
+                    error = e.getMessage() == null
+                            ? e.getClass().getSimpleName()
+                            : e.getMessage().lines().findFirst().orElse("");
+                }
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < properties.maxReportedErrors()) {
+                        errors.add("byte " + (chunk.start() + lineStart) + ": " + error);
+                    }
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return new ParsedChunk(chunk.start(), chunk.end(), chunk.fileSize(), orders, rejected, errors);
+    }
+
+    private static String validate(Order order, LocalDateTime now) {
+        if (!OrderService.isValid(order)
+                || order.getProducts().stream().anyMatch(product -> product == null || product.isBlank())) {
+            return "Invalid order data";
+        }
+        if (order.getStatus() == null) {
+            order.setStatus(OrderStatus.NOWE);
+        }
+        if (order.getCreatedAt() == null) {
+            order.setCreatedAt(now);
+        }
+        return null;
+    }
+
+    private Order parseJson(byte[] bytes, int offset, int length) throws IOException {
+        Order order = orderReader.readValue(bytes, offset, length);
+        order.setId(null);
+        order.setVersion(null);
+        return order;
+    }
+
+    private static LineParser csvParser(String header) {
+        List<String> columns = Arrays.stream(splitCsv(header)).map(String::trim).toList();
+        int customerId = columns.indexOf("customerId");
+        int products = columns.indexOf("products");
+        int createdAt = columns.indexOf("createdAt");
+        int status = columns.indexOf("status");
+        if (customerId < 0 || products < 0) {
+            throw new IllegalArgumentException("CSV header must name the customerId and products columns");
+        }
+        return (bytes, offset, length) -> {
+            String[] fields = splitCsv(new String(bytes, offset, length, StandardCharsets.UTF_8));
+            Order order = new Order();
+            order.setCustomerId(Integer.valueOf(field(fields, customerId)));
+            order.setProducts(Arrays.stream(field(fields, products).split("\\|"))
+                    .map(String::trim)
+                    .collect(Collectors.toCollection(ArrayList::new)));
+            String created = field(fields, createdAt);
+            if (!created.isEmpty()) {
+                order.setCreatedAt(LocalDateTime.parse(created));
+            }
+            String statusValue = field(fields, status);
+            if (!statusValue.isEmpty()) {
+                order.setStatus(OrderStatus.toValidStatus(statusValue)
+                        .orElseThrow(() -> new IllegalArgumentException("Invalid status " + statusValue)));
+            }
+            return order;
+        };
+    }
+
+    private static String field(String[] fields, int index) {
+        return index >= 0 && index < fields.length ? fields[index].trim() : "";
+    }
+
+    /**
+     * Splits one CSV line on commas. Quoted fields may contain commas and doubled quotes.
+     */
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(String[]::new);
+    }
+
+    private String readFirstLine(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(properties.chunkSize().toBytes(), channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return new String(buffer.array(), 0, i, StandardCharsets.UTF_8).strip();
+                }
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).strip();
+    }
+
+    private static ParsedChunk await(Future<ParsedChunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private enum Format {
+        CSV, NDJSON;
+
+        static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported file format, expected .csv, .ndjson or .jsonl");
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        Order parse(byte[] bytes, int offset, int length) throws IOException;
+    }
+
+    private record Chunk(long start, long end, long fileSize, ByteBuffer buffer) {}
+
+    private record ParsedChunk(long start, long end, long fileSize, List<Order> orders, long rejected,
+                               List<String> errors) {}
+}
@@ -1,29 +1,136 @@
 package com.technischools.marcel.order.service;
 
 import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.model.OrderCacheStats;
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderCursor;
 import com.technischools.marcel.order.model.OrderStatus;
-import com.technischools.marcel.order.repository.OrderRepository;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import com.technischools.marcel.order.model.StatusTransitionResult;
+import com.technischools.marcel.order.repository.OrderStore;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "orders.service", description = "OrderService method latency", histogram = true)
 public class OrderService {
-    private final OrderRepository orderRepository;
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_HISTOGRAM_BUCKETS = 10_000;
+    // orders saved per transaction in createOrders, a multiple of hibernate.jdbc.batch_size
+    static final int BATCH_CHUNK_SIZE = 500;
+    // ids touched per UPDATE statement in the bulk status transitions
+    static final int BULK_UPDATE_CHUNK_SIZE = 1000;
+    // orders exported per page, one cursor fetch
+    static final int EXPORT_PAGE_SIZE = 500;
+
+    private final OrderStore orderStore;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderCache orderCache;
+    private final OrderStatusCounter statusCounter;
+    private final OrderWatermark watermark;
+    private final OrderChangeFeed changeFeed;
+    private final OrderArchive archive;
+    private final SingleFlight<ReadKey, List<Order>> concurrentReads = new SingleFlight<>();
 
     @Autowired
-    public OrderService(OrderRepository orderRepository) {
-        this.orderRepository = orderRepository;
+    public OrderService(OrderStore orderStore, EntityManager entityManager,
+                        PlatformTransactionManager transactionManager, OrderCache orderCache,
+                        OrderStatusCounter statusCounter, OrderWatermark watermark, OrderChangeFeed changeFeed,
+                        OrderArchive archive) {
+        this.orderStore = orderStore;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderCache = orderCache;
+        this.statusCounter = statusCounter;
+        this.watermark = watermark;
+        this.changeFeed = changeFeed;
+        this.archive = archive;
+    }
+
+    public static boolean isValid(Order order) {
+        return order != null && order.getCustomerId() != null
+                && order.getProducts() != null && !order.getProducts().isEmpty();
     }
 
     @Transactional
     public Order createOrder(Order order) {
+        applyDefaults(order, LocalDateTime.now());
+        Order savedOrder = orderStore.save(order);
+        statusCounter.add(savedOrder.getStatus(), 1);
+        watermark.advance();
+        changeFeed.publish(OrderChangeEvent.Type.CREATED, savedOrder.getId(), savedOrder.getStatus(), null);
+        return savedOrder;
+    }
+
+    /**
+     * Creates many orders at once. Valid orders are inserted in chunks of {@value #BATCH_CHUNK_SIZE}, each chunk in
+     * its own transaction with JDBC batching, so a failing chunk does not roll back the ones already written.
+     * Returns one result per input order, in input order.
+     */
+    public List<OrderBatchResult> createOrders(List<Order> orders) {
         LocalDateTime now = LocalDateTime.now();
+        OrderBatchResult[] results = new OrderBatchResult[orders.size()];
+        List<Integer> validIndexes = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            if (isValid(orders.get(i))) {
+                validIndexes.add(i);
+            } else {
+                results[i] = OrderBatchResult.failed(i, "Invalid order data");
+            }
+        }
+        for (int from = 0; from < validIndexes.size(); from += BATCH_CHUNK_SIZE) {
+            List<Integer> chunkIndexes = validIndexes.subList(from, Math.min(from + BATCH_CHUNK_SIZE, validIndexes.size()));
+            List<Order> chunk = chunkIndexes.stream().map(orders::get).toList();
+            try {
+                transactionTemplate.executeWithoutResult(transaction -> {
+                    chunk.forEach(order -> applyDefaults(order, now));
+                    orderStore.saveAll(chunk);
+                    entityManager.flush();
+                    entityManager.clear();
+                    chunk.stream()
+                            .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()))
+                            .forEach(statusCounter::add);
+                    watermark.advance();
+                    chunk.forEach(order -> changeFeed.publish(OrderChangeEvent.Type.CREATED, order.getId(),
+                            order.getStatus(), null));
+                });
+                chunkIndexes.forEach(i -> results[i] = OrderBatchResult.created(i, orders.get(i).getId()));
+            } catch (RuntimeException e) {
+                chunkIndexes.forEach(i -> results[i] = OrderBatchResult.failed(i, "Could not save order"));
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private void applyDefaults(Order order, LocalDateTime now) {
         OrderStatus default_status = OrderStatus.NOWE;
         if (order.getStatus() == null) {
             order.setStatus(default_status);
@@ -31,40 +138,403 @@ public class OrderService {
         if (order.getCreatedAt() == null) {
             order.setCreatedAt(now);
         }
-        return orderRepository.save(order);
     }
 
+    /**
+     * Orders by id or by status, or all orders. Concurrent identical calls share one load: the key includes the
+     * watermark, so a call never shares a load that started before a write it could have seen. Every caller gets
+     * its own copies of the shared orders. Calls inside a transaction load on their own, they may see its
+     * uncommitted changes.
+     */
     public List<Order> getOrders(Optional<Long> id, Optional<OrderStatus> status) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loadOrders(id, status);
+        }
+        ReadKey key = new ReadKey(id.orElse(null), status.orElse(null), watermark.current());
+        return concurrentReads.load(key, () -> loadOrders(id, status)).stream()
+                .map(OrderCache::copyOf)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private record ReadKey(Long id, OrderStatus status, String watermark) {}
+
+    private List<Order> loadOrders(Optional<Long> id, Optional<OrderStatus> status) {
         List<Order> orders = new ArrayList<>();
         if (id.isPresent()) {
-            orderRepository.findById(id.get()).ifPresent(order -> {
+            orderCache.get(id.get(), this::findWithProducts).ifPresent(order -> {
                 if (order.getStatus() == status.orElse(null) || status.isEmpty()) {
                     orders.add(order);
                 }
             });
+        } else if (status.isPresent()) {
+            orders.addAll(orderStore.findByStatus(status.get()));
         } else {
-            orderRepository.findAll().forEach(order -> {
-                if (order.getStatus() == status.orElse(null) || status.isEmpty()) {
-                    orders.add(order);
+            orders.addAll(orderStore.findAll());
+        }
+        return orders;
+    }
+
+    // orders by id fall back to the archive, archived orders never change and are cached like live ones
+    private Optional<Order> findWithProducts(Long id) {
+        return orderStore.findWithProductsById(id).or(() -> archive.find(id));
+    }
+
+    /**
+     * Version tag of an order, for conditional GETs: taken from the cached order if there is one, otherwise read
+     * from the version column (of the order or of its archived copy) without loading the order.
+     */
+    public Optional<String> getOrderVersionTag(Long id) {
+        return orderCache.peek(id).map(Order::getVersion)
+                .or(() -> orderStore.findVersionById(id))
+                .or(() -> archive.findVersion(id))
+                .map(this::versionTag);
+    }
+
+    public String versionTag(Order order) {
+        return versionTag(order.getVersion());
+    }
+
+    /**
+     * Version tag of every order list, changes after each committed write.
+     */
+    public String getOrdersVersionTag() {
+        return watermark.current();
+    }
+
+    private String versionTag(Long version) {
+        return watermark.epoch() + "-" + version;
+    }
+
+    /**
+     * Keyset page of orders ordered by id: returns at most {@code limit} orders with an id greater than {@code after}.
+     */
+    public List<Order> getOrders(Optional<OrderStatus> status, Optional<Long> after, int limit) {
+        Long cursor = after.orElse(0L);
+        Limit pageLimit = Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        if (status.isPresent()) {
+            return orderStore.findByStatusAndIdGreaterThanOrderByIdAsc(status.get(), cursor, pageLimit);
+        }
+        return orderStore.findByIdGreaterThanOrderByIdAsc(cursor, pageLimit);
+    }
+
+    /**
+     * Page of a customer's orders, newest first, starting after {@code before} (the last order of the previous page).
+     */
+    public List<Order> getCustomerOrders(Integer customerId, Optional<OrderStatus> status, Optional<OrderCursor> before,
+                                         int limit) {
+        Limit pageLimit = Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        if (before.isPresent()) {
+            return orderStore.findCustomerHistoryBefore(customerId, status.orElse(null),
+                    before.get().createdAt(), before.get().id(), pageLimit);
+        }
+        return orderStore.findCustomerHistory(customerId, status.orElse(null), pageLimit);
+    }
+
+    /**
+     * Page of orders created in {@code [from, to)}, oldest first, starting after {@code after} (the last order of the
+     * previous page).
+     */
+    public List<Order> getOrdersCreatedBetween(LocalDateTime from, LocalDateTime to, Optional<OrderCursor> after,
+                                               int limit) {
+        Limit pageLimit = Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        if (after.isPresent()) {
+            return orderStore.findCreatedBetweenAfter(from, to, after.get().createdAt(), after.get().id(), pageLimit);
+        }
+        return orderStore.findCreatedBetween(from, to, pageLimit);
+    }
+
+    /**
+     * Number of orders per status created in each hour or day of {@code [from, to)}, aggregated by the database.
+     * Buckets without orders are omitted.
+     */
+    public List<OrderTimeBucket> getOrderHistogram(LocalDateTime from, LocalDateTime to, ChronoUnit bucket) {
+        List<OrderTimeBucket> buckets = new ArrayList<>(switch (bucket) {
+            case HOURS -> orderStore.countPerHourAndStatus(from, to);
+            case DAYS -> orderStore.countPerDayAndStatus(from, to);
+            default -> throw new IllegalArgumentException("Unsupported bucket size " + bucket);
+        });
+        buckets.sort(Comparator.comparing(OrderTimeBucket::bucketStart).thenComparing(OrderTimeBucket::status));
+        return buckets;
+    }
+
+    /**
+     * Keyset page of orders containing any (or, with {@code matchAll}, every one) of the given products.
+     */
+    public List<Order> getOrdersByProducts(Collection<String> products, boolean matchAll, Optional<Long> after, int limit) {
+        Set<String> distinctProducts = new HashSet<>(products);
+        Long cursor = after.orElse(0L);
+        Limit pageLimit = Limit.of(Math.clamp(limit, 1, MAX_PAGE_SIZE));
+        if (matchAll) {
+            return orderStore.findContainingAllProducts(distinctProducts, distinctProducts.size(), cursor, pageLimit);
+        }
+        return orderStore.findContainingAnyProduct(distinctProducts, cursor, pageLimit);
+    }
+
+    /**
+     * Streams every order (optionally filtered by status) to {@code sink} in id order. Orders are read in pages of
+     * {@value #EXPORT_PAGE_SIZE}: the products of a page are loaded while all of its orders are attached, so they are
+     * batch fetched instead of one query per order, and the page is detached once the sink has consumed it. The
+     * persistence context stays small no matter how large the table is.
+     */
+    @Transactional(readOnly = true)
+    public void exportOrders(Optional<OrderStatus> status, Consumer<Order> sink) {
+        List<Order> page = new ArrayList<>(EXPORT_PAGE_SIZE);
+        try (Stream<Order> orders = status.map(orderStore::streamByStatusOrderByIdAsc)
+                .orElseGet(orderStore::streamAllByOrderByIdAsc)) {
+            orders.forEach(order -> {
+                page.add(order);
+                if (page.size() == EXPORT_PAGE_SIZE) {
+                    exportPage(page, sink);
                 }
             });
         }
-        return orders;
+        exportPage(page, sink);
+    }
+
+    private void exportPage(List<Order> page, Consumer<Order> sink) {
+        page.forEach(order -> Hibernate.initialize(order.getProducts()));
+        page.forEach(sink);
+        page.forEach(entityManager::detach);
+        page.clear();
     }
 
+    /**
+     * Updates the status and/or replaces the products of an order. A new product list is diffed against the stored
+     * one and only the differing product rows are deleted and inserted, the rest of the collection is not rewritten.
+     * A status change must be allowed by {@link OrderStatus#canTransitionTo}, otherwise an
+     * {@link IllegalStateException} is thrown before anything is written.
+     */
     @Transactional
     public Order patchOrder(Long id, Optional<OrderStatus> orderStatus, Optional<List<String>> products) {
-        Order order = orderRepository.findById(id).orElse(null);
+        if (products.isPresent()) {
+            if (orderStore.lockById(id).isEmpty()) {
+                return null;
+            }
+            // checked before the product rows change, the columnar store cannot roll them back
+            if (orderStatus.isPresent()) {
+                checkTransition(orderStore.findStatusById(id).orElse(null), orderStatus.get());
+            }
+            // product rows are changed before the order is loaded, so the loaded order sees them and its version
+            replaceProducts(id, products.get());
+        }
+        Order order = orderStore.findById(id).orElse(null);
         if (order == null) {return null;}
+        OrderStatus previousStatus = order.getStatus();
+        orderStatus.ifPresent(target -> checkTransition(previousStatus, target));
         orderStatus.ifPresent(order::setStatus);
-        products.ifPresent(order::setProducts);
-        return orderRepository.save(order);
+        orderCache.evict(id);
+        Order savedOrder = orderStore.save(order);
+        statusCounter.moved(previousStatus, savedOrder.getStatus(), 1);
+        watermark.advance();
+        changeFeed.publish(OrderChangeEvent.Type.UPDATED, id, savedOrder.getStatus(), previousStatus);
+        return savedOrder;
     }
 
+    private static void checkTransition(OrderStatus previous, OrderStatus target) {
+        if (previous != null && previous != target && !previous.canTransitionTo(target)) {
+            throw new IllegalStateException("Transition from " + previous + " to " + target + " not allowed");
+        }
+    }
+
+    /**
+     * Appends products to an order with one INSERT per added product. Returns the updated order, or {@code null}
+     * when it does not exist. An empty list changes nothing and leaves the version as it is.
+     */
+    @Transactional
+    public Order addProducts(Long id, List<String> products) {
+        if (products.isEmpty()) {
+            return orderStore.findWithProductsById(id).orElse(null);
+        }
+        if (orderStore.incrementVersion(id) == 0) {
+            return null;
+        }
+        products.forEach(product -> orderStore.insertProduct(id, product));
+        return productsChanged(id);
+    }
+
+    /**
+     * Removes every occurrence of the given products from an order with a single DELETE. Returns the updated order,
+     * or {@code null} when it does not exist. When the order holds none of the products nothing is written and the
+     * version stays as it is.
+     */
+    @Transactional
+    public Order removeProducts(Long id, Collection<String> products) {
+        if (orderStore.lockById(id).isEmpty()) {
+            return null;
+        }
+        Set<String> removed = new HashSet<>(products);
+        if (orderStore.findProductsById(id).stream().noneMatch(removed::contains)) {
+            return orderStore.findWithProductsById(id).orElse(null);
+        }
+        orderStore.incrementVersion(id);
+        orderStore.deleteProducts(id, removed);
+        return productsChanged(id);
+    }
+
+    private Order productsChanged(Long id) {
+        orderCache.evict(id);
+        watermark.advance();
+        Order order = orderStore.findWithProductsById(id).orElse(null);
+        if (order != null) {
+            changeFeed.publish(OrderChangeEvent.Type.UPDATED, id, order.getStatus(), order.getStatus());
+        }
+        return order;
+    }
+
+    /**
+     * Turns the stored product multiset into {@code products}: products that occur less often than before are
+     * deleted, then every occurrence not already stored is inserted. The caller locks the order row before, so
+     * concurrent replacements are diffed one after the other instead of against the same old list.
+     */
+    private void replaceProducts(Long id, List<String> products) {
+        Map<String, Long> remaining = orderStore.findProductsById(id).stream()
+                .collect(Collectors.groupingBy(product -> product, HashMap::new, Collectors.counting()));
+        Map<String, Long> wanted = products.stream()
+                .collect(Collectors.groupingBy(product -> product, Collectors.counting()));
+        Set<String> removed = remaining.keySet().stream()
+                .filter(product -> remaining.get(product) > wanted.getOrDefault(product, 0L))
+                .collect(Collectors.toSet());
+        removed.forEach(remaining::remove);
+        List<String> added = new ArrayList<>();
+        for (String product : products) {
+            if (remaining.getOrDefault(product, 0L) > 0) {
+                remaining.merge(product, -1L, Long::sum);
+            } else {
+                added.add(product);
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return;
+        }
+        orderStore.incrementVersion(id);
+        if (!removed.isEmpty()) {
+            orderStore.deleteProducts(id, removed);
+        }
+        added.forEach(product -> orderStore.insertProduct(id, product));
+    }
+
+    /**
+     * Moves the order from {@code expected} to {@code target} with a single conditional UPDATE, without reading or
+     * locking it first. When the order is no longer in {@code expected}, e.g. after a concurrent transition, nothing
+     * is changed and the result is {@link StatusTransitionResult#CONFLICT}.
+     */
+    @Transactional
+    public StatusTransitionResult transitionStatus(Long id, OrderStatus expected, OrderStatus target) {
+        if (!expected.canTransitionTo(target)) {
+            return StatusTransitionResult.NOT_ALLOWED;
+        }
+        if (orderStore.compareAndSetStatus(id, expected, target) == 0) {
+            return orderStore.existsById(id) ? StatusTransitionResult.CONFLICT : StatusTransitionResult.NOT_FOUND;
+        }
+        orderCache.evict(id);
+        statusCounter.moved(expected, target, 1);
+        watermark.advance();
+        changeFeed.publish(OrderChangeEvent.Type.UPDATED, id, target, expected);
+        return StatusTransitionResult.UPDATED;
+    }
+
+    /**
+     * Moves the given orders to {@code target} with set-based updates of at most {@value #BULK_UPDATE_CHUNK_SIZE}
+     * ids each, one transaction per chunk. Only orders in a status that may move to {@code target} are updated, the
+     * others are left as they are. Returns the number of updated orders. Bulk updates are not published to the
+     * change feed.
+     *
+     * @throws IllegalArgumentException when no status may move to {@code target}
+     */
+    public int updateStatus(List<Long> ids, OrderStatus target) {
+        List<OrderStatus> sources = OrderStatus.sourcesOf(target);
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No transition leads to " + target);
+        }
+        List<Long> distinctIds = ids.stream().distinct().toList();
+        int updated = 0;
+        for (int from = 0; from < distinctIds.size(); from += BULK_UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + BULK_UPDATE_CHUNK_SIZE, distinctIds.size()));
+            updated += transactionTemplate.execute(transaction -> {
+                int chunkUpdated = 0;
+                for (OrderStatus source : sources) {
+                    int sourceUpdated = orderStore.updateStatusByIds(chunk, source, target);
+                    statusCounter.moved(source, target, sourceUpdated);
+                    chunkUpdated += sourceUpdated;
+                }
+                return chunkUpdated;
+            });
+            orderCache.evictAll(chunk);
+        }
+        if (updated > 0) {
+            watermark.advance();
+        }
+        return updated;
+    }
+
+    /**
+     * Moves every order in status {@code from} (optionally only those created before {@code createdBefore}) to
+     * {@code target}. The matching ids are walked in keyset chunks of {@value #BULK_UPDATE_CHUNK_SIZE}, each chunk
+     * updated by id in its own transaction, so no single statement locks the whole table and sparse id ranges do not
+     * cost empty statements. Returns the number of updated orders. Bulk updates are not published to the change feed.
+     *
+     * @throws IllegalArgumentException when {@code from} may not move to {@code target}
+     */
+    public int updateStatus(OrderStatus from, Optional<LocalDateTime> createdBefore, OrderStatus target) {
+        if (!from.canTransitionTo(target)) {
+            throw new IllegalArgumentException("Transition from " + from + " to " + target + " not allowed");
+        }
+        Limit chunkSize = Limit.of(BULK_UPDATE_CHUNK_SIZE);
+        int updated = 0;
+        List<Long> chunk = orderStore.findIdsByStatus(from, createdBefore.orElse(null), 0L, chunkSize);
+        while (!chunk.isEmpty()) {
+            List<Long> ids = chunk;
+            // the status is checked again, an order may have moved since its id was read
+            updated += transactionTemplate.execute(transaction -> {
+                int chunkUpdated = orderStore.updateStatusByIds(ids, from, target);
+                statusCounter.moved(from, target, chunkUpdated);
+                return chunkUpdated;
+            });
+            orderCache.evictAll(ids);
+            chunk = ids.size() < BULK_UPDATE_CHUNK_SIZE ? List.of()
+                    : orderStore.findIdsByStatus(from, createdBefore.orElse(null), ids.getLast(), chunkSize);
+        }
+        if (updated > 0) {
+            watermark.advance();
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes a live or archived order. Archived orders are not counted per status, so deleting one leaves the
+     * counts as they are.
+     */
     @Transactional
     public void deleteOrder(Long id) {
-        orderRepository.deleteById(id);
+        orderCache.evict(id);
+        Optional<Order> order = orderStore.findById(id);
+        if (order.isPresent()) {
+            orderStore.delete(order.get());
+            statusCounter.add(order.get().getStatus(), -1);
+            watermark.advance();
+            changeFeed.publish(OrderChangeEvent.Type.DELETED, id, order.get().getStatus(), null);
+        } else {
+            archive.delete(id).ifPresent(status -> {
+                watermark.advance();
+                changeFeed.publish(OrderChangeEvent.Type.DELETED, id, status, null);
+            });
+        }
     }
 
-}
+    public OrderChangeFeed.Subscription subscribeToChanges(Optional<OrderStatus> status, Optional<Long> after,
+                                                           OrderChangeFeed.Sink sink) {
+        return changeFeed.subscribe(status, after, sink);
+    }
 
+    public OrderCacheStats getCacheStats() {
+        return orderCache.stats();
+    }
+
+    public Map<OrderStatus, Long> getStatusCounts() {
+        return statusCounter.getCounts();
+    }
+
+    public Map<OrderStatus, Long> reconcileStatusCounts() {
+        return statusCounter.reconcile();
+    }
+}
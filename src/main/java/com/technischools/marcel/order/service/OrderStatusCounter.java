@@ -0,0 +1,112 @@
+package com.technischools.marcel.order.service;
+
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderStore;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory number of orders per status. Changes made inside a transaction are applied only once it commits.
+ * Committing transactions hold {@code commitLock} shared from just before the commit until their changes are
+ * applied, and {@link #reconcile()} holds it exclusively while it recounts. A recount therefore never sees a row
+ * whose change is still pending. Lost updates between concurrent patches can still make the counts drift, and a
+ * reconcile corrects that.
+ */
+@Component
+public class OrderStatusCounter implements SmartInitializingSingleton {
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final OrderStore orderStore;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLongArray counts = new AtomicLongArray(STATUSES.length);
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    public OrderStatusCounter(OrderStore orderStore, PlatformTransactionManager transactionManager) {
+        this.orderStore = orderStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconcile();
+    }
+
+    public void add(OrderStatus status, long delta) {
+        if (status == null || delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counts.addAndGet(status.ordinal(), delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int completionStatus) {
+                if (!locked) {
+                    return;
+                }
+                try {
+                    if (completionStatus == STATUS_COMMITTED) {
+                        counts.addAndGet(status.ordinal(), delta);
+                    }
+                } finally {
+                    commitLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    public void moved(OrderStatus from, OrderStatus to, long count) {
+        if (from != to) {
+            add(from, -count);
+            add(to, count);
+        }
+    }
+
+    public Map<OrderStatus, Long> getCounts() {
+        Map<OrderStatus, Long> result = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : STATUSES) {
+            result.put(status, counts.get(status.ordinal()));
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the counters with a fresh {@code group by} count from the database. Must not be called from inside a
+     * transaction that changes counts.
+     */
+    public Map<OrderStatus, Long> reconcile() {
+        commitLock.writeLock().lock();
+        try {
+            long[] fresh = new long[STATUSES.length];
+            transactionTemplate.executeWithoutResult(transaction -> orderStore.countGroupedByStatus()
+                    .forEach(count -> fresh[count.status().ordinal()] = count.count()));
+            for (int i = 0; i < fresh.length; i++) {
+                counts.set(i, fresh[i]);
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        return getCounts();
+    }
+}
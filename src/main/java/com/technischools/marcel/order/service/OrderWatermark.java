@@ -0,0 +1,43 @@
+package com.technischools.marcel.order.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collection-level version of the orders, the ETag of list responses. Every write through {@link OrderService}
+ * advances it once its transaction completes: a reader can see new orders with the previous watermark (and fetch
+ * them once more on its next poll), but never old orders with a new one.
+ * <p>
+ * The watermark lives in memory. It starts at a random epoch so that tags handed out before a restart, when the
+ * in-memory database was different, never match again.
+ */
+@Component
+public class OrderWatermark {
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong counter = new AtomicLong();
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public String current() {
+        return epoch + "-" + counter.get();
+    }
+
+    public void advance() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    counter.incrementAndGet();
+                }
+            });
+        } else {
+            counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderCursor;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import com.technischools.marcel.order.model.StatusTransitionResult;
+import com.technischools.marcel.order.repository.ColumnarOrderRepository;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@link OrderServiceTest} scenarios, run against the columnar store instead of a mocked repository.
+ */
+@ExtendWith(MockitoExtension.class)
+public class ColumnarOrderServiceTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OrderArchive archive;
+
+    private ColumnarOrderRepository orderRepository;
+
+    private OrderService orderService;
+
+    private Order sampleOrder;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = new ColumnarOrderRepository();
+        orderService = new OrderService(orderRepository, entityManager, transactionManager,
+                new OrderCache(new OrderCacheProperties(false, 0, Duration.ZERO)),
+                new OrderStatusCounter(orderRepository, transactionManager), new OrderWatermark(),
+                new OrderChangeFeed(new OrderChangeFeedProperties(100, 100)), archive);
+
+        sampleOrder = new Order();
+        sampleOrder.setCustomerId(1001);
+        sampleOrder.setStatus(OrderStatus.NOWE);
+        sampleOrder.setCreatedAt(LocalDateTime.of(2024, 3, 31, 12, 30));
+        sampleOrder.setProducts(List.of("Product1", "Product2"));
+        orderRepository.save(sampleOrder);
+    }
+
+    @Test
+    void testCreateOrder_WithNullValues_SetsDefaults() {
+        Order createdOrder = orderService.createOrder(new Order());
+
+        assertEquals(2L, createdOrder.getId());
+        Order storedOrder = orderRepository.findById(2L).orElseThrow();
+        assertEquals(OrderStatus.NOWE, storedOrder.getStatus());
+        assertNotNull(storedOrder.getCreatedAt());
+    }
+
+    @Test
+    void testCreateOrder_WithCustomValues() {
+        Order order = new Order();
+        order.setStatus(OrderStatus.W_TRAKCIE);
+        order.setCreatedAt(LocalDateTime.of(2023, 1, 1, 10, 0));
+
+        Order storedOrder = orderRepository.findById(orderService.createOrder(order).getId()).orElseThrow();
+
+        assertEquals(OrderStatus.W_TRAKCIE, storedOrder.getStatus());
+        assertEquals(LocalDateTime.of(2023, 1, 1, 10, 0), storedOrder.getCreatedAt());
+    }
+
+    @Test
+    void testGetOrders_ByStatus_ReturnsFilteredOrders() {
+        Order order2 = new Order();
+        order2.setStatus(OrderStatus.W_TRAKCIE);
+        order2.setProducts(List.of("Product3"));
+        orderService.createOrder(order2);
+
+        List<Order> result = orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.W_TRAKCIE));
+
+        assertEquals(1, result.size());
+        assertEquals(OrderStatus.W_TRAKCIE, result.get(0).getStatus());
+        assertEquals(List.of("Product3"), result.get(0).getProducts());
+    }
+
+    @Test
+    void testGetOrders_NonExistingId_ReturnsEmptyList() {
+        assertTrue(orderService.getOrders(Optional.of(99L), Optional.empty()).isEmpty());
+    }
+
+    @Test
+    void testGetOrders_ByIdAndStatus_MatchingStatus_ReturnsOrder() {
+        List<Order> result = orderService.getOrders(Optional.of(1L), Optional.of(OrderStatus.NOWE));
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(1001, result.get(0).getCustomerId());
+        assertEquals(sampleOrder.getCreatedAt(), result.get(0).getCreatedAt());
+    }
+
+    @Test
+    void testGetOrders_ByIdAndStatus_NonMatchingStatus_ReturnsEmptyList() {
+        assertTrue(orderService.getOrders(Optional.of(1L), Optional.of(OrderStatus.ZAKONCZONE)).isEmpty());
+    }
+
+    @Test
+    void testGetOrders_Page_UsesStatusBitmapAndCursor() {
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order();
+            order.setStatus(i % 2 == 0 ? OrderStatus.W_TRAKCIE : OrderStatus.NOWE);
+            order.setProducts(List.of("Product" + i));
+            orderService.createOrder(order);
+        }
+
+        List<Order> page = orderService.getOrders(Optional.of(OrderStatus.W_TRAKCIE), Optional.of(4L), 2);
+
+        assertEquals(List.of(6L, 8L), page.stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void testGetCustomerOrders_NewestFirstWithCursor() {
+        for (int day = 1; day <= 3; day++) {
+            Order order = new Order();
+            order.setCustomerId(2002);
+            order.setCreatedAt(LocalDateTime.of(2024, 1, day, 0, 0));
+            orderService.createOrder(order);
+        }
+
+        List<Order> firstPage = orderService.getCustomerOrders(2002, Optional.empty(), Optional.empty(), 2);
+        List<Order> secondPage = orderService.getCustomerOrders(2002, Optional.empty(),
+                Optional.of(OrderCursor.of(firstPage.getLast())), 2);
+
+        assertEquals(List.of(4L, 3L), firstPage.stream().map(Order::getId).toList());
+        assertEquals(List.of(2L), secondPage.stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void testGetOrdersCreatedBetween_OldestFirstWithCursor() {
+        for (int hour = 13; hour <= 15; hour++) {
+            Order order = new Order();
+            order.setCreatedAt(LocalDateTime.of(2024, 3, 31, hour, 0));
+            orderService.createOrder(order);
+        }
+        LocalDateTime from = LocalDateTime.of(2024, 3, 31, 12, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 3, 31, 15, 0);
+
+        List<Order> firstPage = orderService.getOrdersCreatedBetween(from, to, Optional.empty(), 2);
+        List<Order> secondPage = orderService.getOrdersCreatedBetween(from, to,
+                Optional.of(OrderCursor.of(firstPage.getLast())), 2);
+
+        assertEquals(List.of(1L, 2L), firstPage.stream().map(Order::getId).toList());
+        assertEquals(List.of(3L), secondPage.stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void testGetOrderHistogram_CountsPerHourAndStatus() {
+        Order sameHour = new Order();
+        sameHour.setStatus(OrderStatus.ZAKONCZONE);
+        sameHour.setCreatedAt(LocalDateTime.of(2024, 3, 31, 12, 59));
+        orderService.createOrder(sameHour);
+        Order nextHour = new Order();
+        nextHour.setCreatedAt(LocalDateTime.of(2024, 3, 31, 13, 5));
+        orderService.createOrder(nextHour);
+
+        List<OrderTimeBucket> histogram = orderService.getOrderHistogram(LocalDateTime.of(2024, 3, 31, 0, 0),
+                LocalDateTime.of(2024, 4, 1, 0, 0), ChronoUnit.HOURS);
+
+        assertEquals(List.of(
+                new OrderTimeBucket(LocalDateTime.of(2024, 3, 31, 12, 0), OrderStatus.NOWE, 1),
+                new OrderTimeBucket(LocalDateTime.of(2024, 3, 31, 12, 0), OrderStatus.ZAKONCZONE, 1),
+                new OrderTimeBucket(LocalDateTime.of(2024, 3, 31, 13, 0), OrderStatus.NOWE, 1)), histogram);
+    }
+
+    @Test
+    void testGetOrdersByProducts_UsesInvertedIndex() {
+        Order order2 = new Order();
+        order2.setProducts(List.of("Product2", "Product3"));
+        orderService.createOrder(order2);
+
+        assertEquals(List.of(1L, 2L), orderService.getOrdersByProducts(List.of("Product1", "Product3"), false, Optional.empty(), 10)
+                .stream().map(Order::getId).toList());
+        assertEquals(List.of(2L), orderService.getOrdersByProducts(List.of("Product2", "Product3"), true, Optional.empty(), 10)
+                .stream().map(Order::getId).toList());
+
+        orderService.patchOrder(2L, Optional.empty(), Optional.of(List.of("Product4")));
+
+        assertTrue(orderService.getOrdersByProducts(List.of("Product3"), false, Optional.empty(), 10).isEmpty());
+    }
+
+    @Test
+    void testTransitionStatus_SecondTransitionConflicts() {
+        assertEquals(StatusTransitionResult.UPDATED,
+                orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.W_TRAKCIE));
+        assertEquals(StatusTransitionResult.CONFLICT,
+                orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.ANULOWANE));
+
+        Order storedOrder = orderRepository.findById(1L).orElseThrow();
+        assertEquals(OrderStatus.W_TRAKCIE, storedOrder.getStatus());
+        assertEquals(1L, storedOrder.getVersion());
+    }
+
+    @Test
+    void testPatchOrder_UpdateOnlyStatus() {
+        orderService.patchOrder(1L, Optional.of(OrderStatus.W_TRAKCIE), Optional.empty());
+
+        Order storedOrder = orderRepository.findById(1L).orElseThrow();
+        assertEquals(OrderStatus.W_TRAKCIE, storedOrder.getStatus());
+        assertEquals(2, storedOrder.getProducts().size());
+        assertTrue(orderRepository.findByStatus(OrderStatus.NOWE).isEmpty());
+    }
+
+    @Test
+    void testUpdateStatus_ByIds_SkipsOrdersThatCannotMove() {
+        Order started = new Order();
+        started.setStatus(OrderStatus.W_TRAKCIE);
+        orderService.createOrder(started);
+
+        assertEquals(1, orderService.updateStatus(List.of(1L, started.getId()), OrderStatus.ZAKONCZONE));
+
+        assertEquals(OrderStatus.NOWE, orderRepository.findById(1L).orElseThrow().getStatus());
+        assertEquals(OrderStatus.ZAKONCZONE, orderRepository.findById(started.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testPatchOrder_UpdateOnlyProducts() {
+        orderService.patchOrder(1L, Optional.empty(), Optional.of(List.of("New Product A", "New Product B")));
+
+        Order storedOrder = orderRepository.findById(1L).orElseThrow();
+        assertEquals(OrderStatus.NOWE, storedOrder.getStatus());
+        assertEquals(List.of("New Product A", "New Product B"), storedOrder.getProducts());
+    }
+
+    @Test
+    void testPatchOrder_TransitionNotAllowed_LeavesProductsUnchanged() {
+        assertThrows(IllegalStateException.class, () -> orderService.patchOrder(
+                1L, Optional.of(OrderStatus.ZAKONCZONE), Optional.of(List.of("New Product A"))));
+
+        Order storedOrder = orderRepository.findById(1L).orElseThrow();
+        assertEquals(OrderStatus.NOWE, storedOrder.getStatus());
+        assertEquals(List.of("Product1", "Product2"), storedOrder.getProducts());
+        assertEquals(List.of(1L), orderService.getOrdersByProducts(List.of("Product1"), false, Optional.empty(), 10)
+                .stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void testAddAndRemoveProducts_UpdateProductIndex() {
+        orderService.addProducts(1L, List.of("Product3"));
+        Order order = orderService.removeProducts(1L, List.of("Product1"));
+
+        assertEquals(List.of("Product2", "Product3"), order.getProducts());
+        assertEquals(List.of(1L), orderService.getOrdersByProducts(List.of("Product3"), false, Optional.empty(), 10)
+                .stream().map(Order::getId).toList());
+        assertTrue(orderService.getOrdersByProducts(List.of("Product1"), false, Optional.empty(), 10).isEmpty());
+    }
+
+    @Test
+    void testAddAndRemoveProducts_NoChange_LeavesVersion() {
+        long version = orderRepository.findVersionById(1L).orElseThrow();
+
+        orderService.addProducts(1L, List.of());
+        Order order = orderService.removeProducts(1L, List.of("Product9"));
+
+        assertEquals(List.of("Product1", "Product2"), order.getProducts());
+        assertEquals(version, orderRepository.findVersionById(1L).orElseThrow());
+    }
+
+    @Test
+    void testPatchOrder_OrderNotFound_ReturnsNull() {
+        assertNull(orderService.patchOrder(99L, Optional.of(OrderStatus.ZAKONCZONE), Optional.empty()));
+    }
+
+    @Test
+    void testDeleteOrder_NonExistingId_NoError() {
+        assertDoesNotThrow(() -> orderService.deleteOrder(99L));
+        assertEquals(1, orderRepository.count());
+    }
+
+    @Test
+    void testDeleteOrder_RemovesOrderAndStatusCount() {
+        orderService.reconcileStatusCounts();
+
+        orderService.deleteOrder(1L);
+
+        assertTrue(orderRepository.findById(1L).isEmpty());
+        assertEquals(0L, orderService.getStatusCounts().get(OrderStatus.NOWE));
+    }
+
+    @Test
+    void testGetOrders_NoOrders_ReturnsEmptyList() {
+        orderRepository.deleteAll();
+
+        assertTrue(orderService.getOrders(Optional.empty(), Optional.empty()).isEmpty());
+    }
+
+    @Test
+    void testUpdateStatus_ByStatus_UpdatesMatchingRows() {
+        Order old = new Order();
+        old.setStatus(OrderStatus.NOWE);
+        old.setCreatedAt(LocalDateTime.of(2020, 1, 1, 0, 0));
+        orderService.createOrder(old);
+
+        int updated = orderService.updateStatus(OrderStatus.NOWE, Optional.of(LocalDateTime.of(2021, 1, 1, 0, 0)),
+                OrderStatus.ANULOWANE);
+
+        assertEquals(1, updated);
+        assertEquals(OrderStatus.ANULOWANE, orderRepository.findById(old.getId()).orElseThrow().getStatus());
+        assertEquals(OrderStatus.NOWE, orderRepository.findById(1L).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testExportOrders_StreamsLiveOrders() {
+        Order deleted = orderService.createOrder(new Order());
+        orderService.deleteOrder(deleted.getId());
+        List<Order> exported = new ArrayList<>();
+
+        orderService.exportOrders(Optional.empty(), exported::add);
+
+        assertEquals(List.of(1L), exported.stream().map(Order::getId).toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.controller.AdaptiveConcurrencyLimit;
+import com.technischools.marcel.order.controller.OrderAdmissionFilter;
+import com.technischools.marcel.order.controller.OrderAdmissionProperties;
+import com.technischools.marcel.order.model.OrderAdmissionStats;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OrderAdmissionFilterTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final OrderAdmissionFilter filter = new OrderAdmissionFilter(new OrderAdmissionProperties(true,
+            Duration.ofSeconds(2), 1.5, 0.2,
+            new OrderAdmissionProperties.Pool(10, 1, 100),
+            new OrderAdmissionProperties.Pool(1, 1, 10)));
+
+    @Test
+    void testFilter_ExpensivePoolFull_RejectsWithRetryAfter() throws Exception {
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> cheapWhileFull = new AtomicReference<>();
+        FilterChain holdSlot = (request, response) -> {
+            // a second list request and a single-order request arrive while the first list is running
+            nested.set(perform("GET", "/orders/get-by-status", (r, s) -> fail("should have been rejected")));
+            cheapWhileFull.set(perform("GET", "/orders/42", (r, s) -> {}));
+        };
+
+        MockHttpServletResponse first = perform("GET", "/orders", holdSlot);
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("2", nested.get().getHeader("Retry-After"));
+        assertEquals(200, cheapWhileFull.get().getStatus());
+        OrderAdmissionStats expensive = filter.stats().get(1);
+        assertEquals("expensive", expensive.pool());
+        assertEquals(1, expensive.admitted());
+        assertEquals(1, expensive.rejected());
+        assertEquals(0, expensive.inFlight());
+    }
+
+    @Test
+    void testFilter_ChangeFeedIsNotLimited() throws Exception {
+        perform("GET", "/orders/changes", (request, response) -> {});
+
+        assertEquals(0, filter.stats().get(0).admitted());
+        assertEquals(0, filter.stats().get(1).admitted());
+    }
+
+    @Test
+    void testLimit_GrowsWhileBusyAndFast_ShrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test",
+                new OrderAdmissionProperties.Pool(10, 2, 100), 1.5, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            runSaturated(limit, FAST);
+        }
+        int grown = limit.limit();
+        assertTrue(grown > 10, "limit should grow, was " + grown);
+
+        for (int i = 0; i < 50; i++) {
+            runSaturated(limit, SLOW);
+        }
+        assertTrue(limit.limit() < grown, "limit should shrink, was " + limit.limit());
+    }
+
+    @Test
+    void testLimit_SustainedSlowLatency_BaselineDoesNotDrift() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test",
+                new OrderAdmissionProperties.Pool(10, 2, 100), 1.5, 0.2);
+        for (int i = 0; i < 50; i++) {
+            runSaturated(limit, FAST);
+        }
+
+        // fewer samples than a baseline window, the fast minimum stays the baseline throughout
+        int samples = 0;
+        while (samples < 450) {
+            samples += runSaturated(limit, SLOW);
+        }
+
+        assertTrue(limit.limit() <= 5, "limit should stay shrunk, was " + limit.limit());
+    }
+
+    @Test
+    void testLimit_IdlePoolDoesNotGrow_FailuresBackOff() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("test",
+                new OrderAdmissionProperties.Pool(10, 2, 100), 1.5, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(FAST, false);
+        }
+        assertEquals(10, limit.limit());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(FAST, true);
+        assertEquals(9, limit.limit());
+    }
+
+    private static int runSaturated(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        int acquired = 0;
+        while (limit.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limit.release(latencyNanos, false);
+        }
+        return acquired;
+    }
+
+    private MockHttpServletResponse perform(String method, String uri, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
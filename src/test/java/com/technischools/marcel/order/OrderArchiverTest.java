@@ -0,0 +1,112 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderRepository;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderArchiveProperties;
+import com.technischools.marcel.order.service.OrderArchiver;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@DataJpaTest(properties = {"orders.archive.batch-size=3", "orders.archive.pause-between-batches=0s"})
+@Import({OrderService.class, OrderCache.class, OrderStatusCounter.class, OrderWatermark.class,
+        OrderChangeFeed.class, OrderArchive.class, OrderArchiver.class})
+@EnableConfigurationProperties({OrderCacheProperties.class, OrderChangeFeedProperties.class,
+        OrderArchiveProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderArchiverTest {
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private OrderArchiver archiver;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testArchive_MovesOldFinalOrdersInBatches() {
+        List<Order> archivable = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            archivable.add(newOrder(i % 2 == 0 ? OrderStatus.ZAKONCZONE : OrderStatus.ANULOWANE, CUTOFF.minusDays(i + 1),
+                    "Product" + i, "Shared"));
+        }
+        Order stillOpen = newOrder(OrderStatus.W_TRAKCIE, CUTOFF.minusDays(10), "Open");
+        Order recent = newOrder(OrderStatus.ZAKONCZONE, CUTOFF.plusDays(1), "Recent");
+        orderService.createOrders(new ArrayList<>(archivable));
+        orderService.createOrders(List.of(stillOpen, recent));
+        String listTag = orderService.getOrdersVersionTag();
+
+        assertEquals(7, archiver.archive(CUTOFF));
+
+        assertEquals(2, orderRepository.count());
+        assertEquals(2L, productRowCount());
+        assertNotEquals(listTag, orderService.getOrdersVersionTag());
+        assertEquals(1L, orderService.getStatusCounts().get(OrderStatus.ZAKONCZONE));
+        assertEquals(0L, orderService.getStatusCounts().get(OrderStatus.ANULOWANE));
+        for (Order order : archivable) {
+            Order archived = orderService.getOrders(Optional.of(order.getId()), Optional.empty()).getFirst();
+            assertEquals(order.getStatus(), archived.getStatus());
+            assertEquals(order.getCustomerId(), archived.getCustomerId());
+            assertEquals(order.getProducts(), archived.getProducts());
+            assertEquals(Optional.of(orderService.versionTag(order)), orderService.getOrderVersionTag(order.getId()));
+        }
+        assertEquals(0, archiver.archive(CUTOFF));
+    }
+
+    @Test
+    void testDeleteOrder_DeletesArchivedOrder() {
+        Order order = newOrder(OrderStatus.ZAKONCZONE, CUTOFF.minusDays(1), "Archived");
+        orderService.createOrder(order);
+        assertEquals(1, archiver.archive(CUTOFF));
+        // cached after the archive
+        assertEquals(1, orderService.getOrders(Optional.of(order.getId()), Optional.empty()).size());
+        String listTag = orderService.getOrdersVersionTag();
+
+        orderService.deleteOrder(order.getId());
+
+        assertTrue(orderService.getOrders(Optional.of(order.getId()), Optional.empty()).isEmpty());
+        assertEquals(Optional.empty(), orderService.getOrderVersionTag(order.getId()));
+        assertNotEquals(listTag, orderService.getOrdersVersionTag());
+    }
+
+    private long productRowCount() {
+        return ((Number) entityManager.createNativeQuery("select count(*) from order_products").getSingleResult())
+                .longValue();
+    }
+
+    private static Order newOrder(OrderStatus status, LocalDateTime createdAt, String... products) {
+        Order order = new Order();
+        order.setCustomerId(7);
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setProducts(new ArrayList<>(List.of(products)));
+        return order;
+    }
+}
@@ -0,0 +1,161 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class OrderChangeFeedTest {
+
+    private OrderChangeFeed changeFeed;
+
+    @BeforeEach
+    void setUp() {
+        changeFeed = new OrderChangeFeed(new OrderChangeFeedProperties(4, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testPublish_InsideTransaction_SentAfterCommitOnly() throws Exception {
+        QueueSink sink = new QueueSink();
+        changeFeed.subscribe(Optional.empty(), Optional.empty(), sink);
+        TransactionSynchronizationManager.initSynchronization();
+
+        changeFeed.publish(OrderChangeEvent.Type.CREATED, 1L, OrderStatus.NOWE, null);
+        changeFeed.publish(OrderChangeEvent.Type.CREATED, 2L, OrderStatus.NOWE, null);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.getFirst().afterCommit();
+        synchronizations.getLast().afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(1L, sink.next().orderId());
+        assertNull(sink.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testSubscribe_WithStatus_GetsOrdersEnteringAndLeavingIt() throws Exception {
+        QueueSink sink = new QueueSink();
+        changeFeed.subscribe(Optional.of(OrderStatus.W_TRAKCIE), Optional.empty(), sink);
+
+        changeFeed.publish(OrderChangeEvent.Type.CREATED, 1L, OrderStatus.NOWE, null);
+        changeFeed.publish(OrderChangeEvent.Type.UPDATED, 1L, OrderStatus.W_TRAKCIE, OrderStatus.NOWE);
+        changeFeed.publish(OrderChangeEvent.Type.UPDATED, 1L, OrderStatus.ZAKONCZONE, OrderStatus.W_TRAKCIE);
+
+        assertEquals(2L, sink.next().sequence());
+        assertEquals(3L, sink.next().sequence());
+    }
+
+    @Test
+    void testSubscribe_After_ReplaysBufferedEvents() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            changeFeed.publish(OrderChangeEvent.Type.CREATED, id, OrderStatus.NOWE, null);
+        }
+        QueueSink sink = new QueueSink();
+
+        changeFeed.subscribe(Optional.empty(), Optional.of(1L), sink);
+
+        assertEquals(2L, sink.next().sequence());
+        assertEquals(3L, sink.next().sequence());
+        changeFeed.publish(OrderChangeEvent.Type.DELETED, 1L, OrderStatus.NOWE, null);
+        assertEquals(OrderChangeEvent.Type.DELETED, sink.next().type());
+    }
+
+    @Test
+    void testSubscribe_AfterMoreThanMaxPending_StartsWithReset() throws Exception {
+        for (long id = 1; id <= 4; id++) {
+            changeFeed.publish(OrderChangeEvent.Type.CREATED, id, OrderStatus.NOWE, null);
+        }
+        QueueSink sink = new QueueSink();
+
+        changeFeed.subscribe(Optional.empty(), Optional.of(0L), sink);
+
+        OrderChangeEvent reset = sink.next();
+        assertEquals(OrderChangeEvent.Type.RESET, reset.type());
+        assertEquals(4L, reset.sequence());
+        assertNull(sink.events.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, changeFeed.subscriberCount());
+    }
+
+    @Test
+    void testSubscribe_AfterEvictedSequence_StartsWithReset() throws Exception {
+        for (long id = 1; id <= 10; id++) {
+            changeFeed.publish(OrderChangeEvent.Type.CREATED, id, OrderStatus.NOWE, null);
+        }
+        QueueSink sink = new QueueSink();
+
+        changeFeed.subscribe(Optional.empty(), Optional.of(2L), sink);
+
+        OrderChangeEvent reset = sink.next();
+        assertEquals(OrderChangeEvent.Type.RESET, reset.type());
+        assertEquals(10L, reset.sequence());
+    }
+
+    @Test
+    void testPublish_SlowConsumer_DisconnectedWithoutBlocking() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        changeFeed.subscribe(Optional.empty(), Optional.empty(), new OrderChangeFeed.Sink() {
+            @Override
+            public void send(OrderChangeEvent event) {
+                blocked.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        });
+
+        changeFeed.publish(OrderChangeEvent.Type.CREATED, 1L, OrderStatus.NOWE, null);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 10; id++) {
+            changeFeed.publish(OrderChangeEvent.Type.CREATED, id, OrderStatus.NOWE, null);
+        }
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, changeFeed.subscriberCount());
+    }
+
+    private static class QueueSink implements OrderChangeFeed.Sink {
+        private final BlockingQueue<OrderChangeEvent> events = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(OrderChangeEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        OrderChangeEvent next() throws InterruptedException {
+            OrderChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            return event;
+        }
+    }
+}
@@ -1,13 +1,25 @@
 package com.technischools.marcel.order;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.technischools.marcel.order.controller.OrderController;
+import com.technischools.marcel.order.controller.OrderFormatConfiguration;
+import com.technischools.marcel.order.model.BulkStatusUpdate;
 import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.model.OrderCacheStats;
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderCursor;
 import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import com.technischools.marcel.order.model.StatusTransitionResult;
+import com.technischools.marcel.order.service.OrderChangeFeed;
 import com.technischools.marcel.order.service.OrderService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,13 +27,18 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Arrays;
+import java.util.function.Consumer;
 
 @WebMvcTest(OrderController.class)
 class OrderControllerTest {
@@ -74,6 +91,33 @@ class OrderControllerTest {
         verify(orderService, never()).createOrder(any(Order.class));
     }
 
+    @Test
+    void testCreateOrders_ReturnsPerOrderResults() throws Exception {
+        when(orderService.createOrders(anyList()))
+                .thenReturn(List.of(OrderBatchResult.created(0, 1L), OrderBatchResult.failed(1, "Invalid order data")));
+
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(sampleOrder, new Order()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].created").value(true))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].created").value(false))
+                .andExpect(jsonPath("$[1].error").value("Invalid order data"));
+
+        verify(orderService, times(1)).createOrders(anyList());
+    }
+
+    @Test
+    void testCreateOrders_EmptyBatch_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderService, never()).createOrders(anyList());
+    }
+
     @Test
     void testGetOrderById_ExistingOrder_ReturnsOrder() throws Exception {
         when(orderService.getOrders(Optional.of(1L), Optional.empty())).thenReturn(List.of(sampleOrder));
@@ -86,6 +130,51 @@ class OrderControllerTest {
         verify(orderService, times(1)).getOrders(Optional.of(1L), Optional.empty());
     }
 
+    @Test
+    void testGetOrderById_ReturnsVersionETag() throws Exception {
+        when(orderService.getOrders(Optional.of(1L), Optional.empty())).thenReturn(List.of(sampleOrder));
+        when(orderService.versionTag(sampleOrder)).thenReturn("a1-3");
+
+        mockMvc.perform(get("/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"a1-3\""));
+    }
+
+    @Test
+    void testGetOrderById_MatchingIfNoneMatch_ReturnsNotModifiedWithoutLoading() throws Exception {
+        when(orderService.getOrderVersionTag(1L)).thenReturn(Optional.of("a1-3"));
+
+        mockMvc.perform(get("/orders/1")
+                        .header("If-None-Match", "\"a1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(orderService, never()).getOrders(any(), any());
+    }
+
+    @Test
+    void testGetAllOrders_MatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        when(orderService.getOrdersVersionTag()).thenReturn("a1-42");
+
+        mockMvc.perform(get("/orders")
+                        .header("If-None-Match", "\"a1-42\""))
+                .andExpect(status().isNotModified());
+
+        verify(orderService, never()).getOrders(any(), any());
+    }
+
+    @Test
+    void testGetAllOrders_ReturnsWatermarkETag() throws Exception {
+        when(orderService.getOrdersVersionTag()).thenReturn("a1-43");
+        when(orderService.getOrders(Optional.empty(), Optional.empty())).thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders")
+                        .header("If-None-Match", "\"a1-42\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"a1-43\""))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
     @Test
     void testGetOrderById_NonExistingOrder_ReturnsNotFound() throws Exception {
         when(orderService.getOrders(Optional.of(99L), Optional.empty())).thenReturn(List.of());
@@ -139,6 +228,42 @@ class OrderControllerTest {
         verify(orderService, times(1)).getOrders(Optional.empty(), Optional.empty());
     }
 
+    @Test
+    void testGetAllOrders_AcceptCbor_ReturnsCbor() throws Exception {
+        when(orderService.getOrders(Optional.empty(), Optional.empty())).thenReturn(List.of(sampleOrder));
+
+        MvcResult result = mockMvc.perform(get("/orders")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn();
+
+        ObjectMapper cbor = OrderFormatConfiguration.cborMapper(Jackson2ObjectMapperBuilder.json());
+        List<Order> orders = cbor.readValue(result.getResponse().getContentAsByteArray(), new TypeReference<>() {});
+        assertEquals(1, orders.size());
+        assertEquals(sampleOrder.getId(), orders.getFirst().getId());
+        assertEquals(sampleOrder.getProducts(), orders.getFirst().getProducts());
+        assertEquals(sampleOrder.getCreatedAt(), orders.getFirst().getCreatedAt());
+    }
+
+    @Test
+    void testCreateOrder_SmileBody_ReturnsSmile() throws Exception {
+        when(orderService.createOrder(any(Order.class))).thenReturn(sampleOrder);
+        ObjectMapper smile = OrderFormatConfiguration.smileMapper(Jackson2ObjectMapperBuilder.json());
+
+        MvcResult result = mockMvc.perform(post("/orders")
+                        .contentType(OrderFormatConfiguration.APPLICATION_SMILE)
+                        .accept(OrderFormatConfiguration.APPLICATION_SMILE)
+                        .content(smile.writeValueAsBytes(sampleOrder)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(OrderFormatConfiguration.APPLICATION_SMILE))
+                .andReturn();
+
+        assertEquals(sampleOrder.getId(), smile.readValue(result.getResponse().getContentAsByteArray(), Order.class).getId());
+        verify(orderService).createOrder(argThat(order -> order.getCustomerId().equals(123)));
+    }
+
     @Test
     void testGetAllOrders_NoOrders_ReturnsNotFound() throws Exception {
         when(orderService.getOrders(Optional.empty(), Optional.empty())).thenReturn(List.of());
@@ -149,6 +274,219 @@ class OrderControllerTest {
         verify(orderService, times(1)).getOrders(Optional.empty(), Optional.empty());
     }
 
+    @Test
+    void testGetAllOrders_Paged_ReturnsNextCursor() throws Exception {
+        when(orderService.getOrders(Optional.empty(), Optional.of(0L), 1)).thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders")
+                        .param("after", "0")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        verify(orderService, times(1)).getOrders(Optional.empty(), Optional.of(0L), 1);
+    }
+
+    @Test
+    void testGetOrdersByStatus_Paged_LastPageHasNoCursor() throws Exception {
+        when(orderService.getOrders(Optional.of(OrderStatus.NOWE), Optional.of(0L), OrderService.DEFAULT_PAGE_SIZE))
+                .thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders/get-by-status")
+                        .param("status", "NOWE")
+                        .param("after", "0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void testGetAllOrders_ByProducts_ReturnsPage() throws Exception {
+        when(orderService.getOrdersByProducts(List.of("Product1", "Product2"), true, Optional.empty(), OrderService.DEFAULT_PAGE_SIZE))
+                .thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders")
+                        .param("product", "Product1", "Product2")
+                        .param("match", "all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        verify(orderService, never()).getOrders(any(), any());
+    }
+
+    @Test
+    void testGetAllOrders_ByProducts_InvalidMatch_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/orders")
+                        .param("product", "Product1")
+                        .param("match", "some"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testGetAllOrders_ByCustomer_ReturnsNewestFirstPageWithCursor() throws Exception {
+        sampleOrder.setCreatedAt(LocalDateTime.of(2024, 3, 31, 12, 30));
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2024, 4, 1, 8, 0), 7L);
+        when(orderService.getCustomerOrders(123, Optional.of(OrderStatus.NOWE), Optional.of(cursor), 1))
+                .thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders")
+                        .param("customerId", "123")
+                        .param("status", "NOWE")
+                        .param("cursor", cursor.toString())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2024-03-31T12:30,1"))
+                .andExpect(jsonPath("$[0].customerId").value(123));
+    }
+
+    @Test
+    void testGetAllOrders_ByCustomer_InvalidCursor_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/orders")
+                        .param("customerId", "123")
+                        .param("cursor", "yesterday"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testGetOrdersCreatedBetween_ReturnsPageWithCursor() throws Exception {
+        sampleOrder.setCreatedAt(LocalDateTime.of(2024, 3, 31, 12, 30));
+        when(orderService.getOrdersCreatedBetween(LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0),
+                Optional.empty(), 1)).thenReturn(List.of(sampleOrder));
+
+        mockMvc.perform(get("/orders/created")
+                        .param("from", "2024-03-01T00:00:00")
+                        .param("to", "2024-04-01T00:00:00")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "2024-03-31T12:30,1"))
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void testGetOrderHistogram_ReturnsBuckets() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 31, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 1, 0, 0);
+        when(orderService.getOrderHistogram(from, to, ChronoUnit.HOURS)).thenReturn(
+                List.of(new OrderTimeBucket(LocalDateTime.of(2024, 3, 31, 12, 0), OrderStatus.NOWE, 5)));
+
+        mockMvc.perform(get("/orders/histogram")
+                        .param("from", "2024-03-31T00:00:00")
+                        .param("to", "2024-04-01T00:00:00")
+                        .param("bucket", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("NOWE"))
+                .andExpect(jsonPath("$[0].count").value(5));
+    }
+
+    @Test
+    void testGetOrderHistogram_TooManyBuckets_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/orders/histogram")
+                        .param("from", "2000-01-01T00:00:00")
+                        .param("to", "2024-01-01T00:00:00")
+                        .param("bucket", "hour"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testGetAllOrders_InvalidPageSize_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/orders")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testStreamChanges_SendsEventsWithSequenceIds() throws Exception {
+        OrderChangeEvent event = new OrderChangeEvent(5L, OrderChangeEvent.Type.UPDATED, 1L, OrderStatus.W_TRAKCIE,
+                OrderStatus.NOWE, LocalDateTime.of(2024, 3, 31, 12, 30));
+        doAnswer(invocation -> {
+            OrderChangeFeed.Sink sink = invocation.getArgument(2);
+            sink.send(event);
+            sink.close();
+            return mock(OrderChangeFeed.Subscription.class);
+        }).when(orderService).subscribeToChanges(eq(Optional.of(OrderStatus.W_TRAKCIE)), eq(Optional.of(4L)), any());
+
+        MvcResult result = mockMvc.perform(get("/orders/changes")
+                        .param("status", "W_TRAKCIE")
+                        .header("Last-Event-ID", "4"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("id:5\nevent:UPDATED\ndata:")));
+    }
+
+    @Test
+    void testExportOrders_StreamsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Order> sink = invocation.getArgument(1);
+            sink.accept(sampleOrder);
+            return null;
+        }).when(orderService).exportOrders(eq(Optional.of(OrderStatus.NOWE)), any());
+
+        MvcResult result = mockMvc.perform(get("/orders/export")
+                        .param("status", "NOWE"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(objectMapper.writeValueAsString(sampleOrder) + "\n"));
+    }
+
+    @Test
+    void testExportOrders_InvalidStatus_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/orders/export")
+                        .param("status", "UNKNOWN"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void testGetStatusCounts_ReturnsCounts() throws Exception {
+        when(orderService.getStatusCounts()).thenReturn(Map.of(OrderStatus.NOWE, 5L, OrderStatus.ZAKONCZONE, 2L));
+
+        mockMvc.perform(get("/orders/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.NOWE").value(5))
+                .andExpect(jsonPath("$.ZAKONCZONE").value(2));
+
+        verify(orderService, times(1)).getStatusCounts();
+    }
+
+    @Test
+    void testReconcileStatusCounts_ReturnsRecountedCounts() throws Exception {
+        when(orderService.reconcileStatusCounts()).thenReturn(Map.of(OrderStatus.NOWE, 4L));
+
+        mockMvc.perform(post("/orders/stats/reconcile"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.NOWE").value(4));
+
+        verify(orderService, times(1)).reconcileStatusCounts();
+    }
+
+    @Test
+    void testGetCacheStats_ReturnsStats() throws Exception {
+        when(orderService.getCacheStats()).thenReturn(new OrderCacheStats(true, 3, 10, 4, 1));
+
+        mockMvc.perform(get("/orders/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hitCount").value(10))
+                .andExpect(jsonPath("$.missCount").value(4))
+                .andExpect(jsonPath("$.evictionCount").value(1));
+    }
+
     @Test
     void testUpdateOrder_Success() throws Exception {
         sampleOrder.setStatus(OrderStatus.ZAKONCZONE);
@@ -196,6 +534,17 @@ class OrderControllerTest {
         verify(orderService, times(1)).patchOrder(eq(1L), any(), any());
     }
 
+    @Test
+    void testUpdateOrder_TransitionNotAllowed_ReturnsConflict() throws Exception {
+        when(orderService.patchOrder(eq(1L), eq(Optional.of(OrderStatus.NOWE)), any()))
+                .thenThrow(new IllegalStateException("Transition from ZAKONCZONE to NOWE not allowed"));
+
+        mockMvc.perform(patch("/orders/1")
+                        .param("status", "NOWE"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Transition not allowed"));
+    }
+
     @Test
     void testUpdateOrder_OrderNotFound_ReturnsNotFound() throws Exception {
         when(orderService.patchOrder(eq(99L), any(), any())).thenReturn(null);
@@ -208,6 +557,86 @@ class OrderControllerTest {
         verify(orderService, times(1)).patchOrder(eq(99L), any(), any());
     }
 
+    @Test
+    void testAddProducts_ReturnsUpdatedOrder() throws Exception {
+        sampleOrder.setProducts(List.of("Product1", "Product2", "Product3"));
+        when(orderService.addProducts(1L, List.of("Product3"))).thenReturn(sampleOrder);
+
+        mockMvc.perform(post("/orders/1/products")
+                        .param("product", "Product3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[2]").value("Product3"));
+    }
+
+    @Test
+    void testRemoveProducts_OrderNotFound_ReturnsNotFound() throws Exception {
+        when(orderService.removeProducts(99L, List.of("Product1"))).thenReturn(null);
+
+        mockMvc.perform(delete("/orders/99/products")
+                        .param("product", "Product1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testTransitionOrderStatus_Success() throws Exception {
+        when(orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.W_TRAKCIE))
+                .thenReturn(StatusTransitionResult.UPDATED);
+
+        mockMvc.perform(patch("/orders/1/status")
+                        .param("expectedStatus", "NOWE")
+                        .param("newStatus", "W_TRAKCIE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("W_TRAKCIE"));
+    }
+
+    @Test
+    void testTransitionOrderStatus_Conflict_ReturnsConflict() throws Exception {
+        when(orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.ANULOWANE))
+                .thenReturn(StatusTransitionResult.CONFLICT);
+
+        mockMvc.perform(patch("/orders/1/status")
+                        .param("expectedStatus", "NOWE")
+                        .param("newStatus", "ANULOWANE"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testUpdateOrdersStatus_ByStatus_ReturnsUpdatedCount() throws Exception {
+        when(orderService.updateStatus(OrderStatus.W_TRAKCIE, Optional.empty(), OrderStatus.ZAKONCZONE)).thenReturn(42);
+
+        mockMvc.perform(patch("/orders/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkStatusUpdate(null, OrderStatus.W_TRAKCIE, null, OrderStatus.ZAKONCZONE))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(42));
+
+        verify(orderService, times(1)).updateStatus(OrderStatus.W_TRAKCIE, Optional.empty(), OrderStatus.ZAKONCZONE);
+    }
+
+    @Test
+    void testUpdateOrdersStatus_TransitionNotAllowed_ReturnsBadRequest() throws Exception {
+        when(orderService.updateStatus(OrderStatus.ZAKONCZONE, Optional.empty(), OrderStatus.NOWE))
+                .thenThrow(new IllegalArgumentException("Transition from ZAKONCZONE to NOWE not allowed"));
+
+        mockMvc.perform(patch("/orders/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkStatusUpdate(null, OrderStatus.ZAKONCZONE, null, OrderStatus.NOWE))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUpdateOrdersStatus_IdsAndStatus_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(patch("/orders/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new BulkStatusUpdate(List.of(1L), OrderStatus.W_TRAKCIE, null, OrderStatus.ZAKONCZONE))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
     @Test
     void testDeleteOrder_Success() throws Exception {
         doNothing().when(orderService).deleteOrder(1L);
@@ -227,4 +656,14 @@ class OrderControllerTest {
 
         verify(orderService, times(1)).deleteOrder(99L);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetAdmissionStats_ReturnsBothPools() throws Exception {
+        mockMvc.perform(get("/orders/admission/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].pool").value("cheap"))
+                .andExpect(jsonPath("$[1].pool").value("expensive"))
+                .andExpect(jsonPath("$[1].limit").isNumber())
+                .andExpect(jsonPath("$[1].rejected").value(0));
+    }
+}
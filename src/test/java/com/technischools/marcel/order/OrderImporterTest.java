@@ -0,0 +1,198 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderImportCheckpoint;
+import com.technischools.marcel.order.model.OrderImportResult;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderImportCheckpointRepository;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import com.technischools.marcel.order.service.OrderImportProperties;
+import com.technischools.marcel.order.service.OrderImporter;
+import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@DataJpaTest(properties = {"orders.import.chunk-size=128B", "orders.import.batch-size=2",
+        "orders.import.parallelism=2"})
+@Import({OrderService.class, OrderCache.class, OrderStatusCounter.class, OrderWatermark.class,
+        OrderChangeFeed.class, OrderArchive.class, OrderImporter.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({OrderCacheProperties.class, OrderChangeFeedProperties.class,
+        OrderImportProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderImporterTest {
+    @TempDir
+    static Path importDirectory;
+
+    @Autowired
+    private OrderImporter importer;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderImportCheckpointRepository checkpoints;
+
+    @DynamicPropertySource
+    static void importProperties(DynamicPropertyRegistry registry) {
+        registry.add("orders.import.directory", importDirectory::toString);
+    }
+
+    @Test
+    void testImportCsv_InsertsValidLinesAcrossChunksAndSkipsInvalidOnes() throws IOException {
+        write("orders.csv", """
+                customerId,products,createdAt,status
+                7,"Widget, large|Bolt",2024-01-02T10:15:30,W_TRAKCIE
+                8,Nut
+                not-a-number,Screw
+                9,Gear|Chain|Pedal,,ZAKONCZONE
+                """);
+        long startedCount = orderService.getStatusCounts().get(OrderStatus.NOWE);
+
+        OrderImportResult result = importer.importFile("orders.csv", false);
+
+        assertEquals(3, result.importedRows());
+        assertEquals(1, result.rejectedRows());
+        assertEquals(3, result.importedThisRun());
+        assertEquals(0, result.resumedFromByte());
+        assertEquals(1, result.errors().size());
+        List<Order> orders = csvOrders();
+        assertEquals(3, orders.size());
+        assertEquals(List.of("Widget, large", "Bolt"), orders.get(0).getProducts());
+        assertEquals(OrderStatus.W_TRAKCIE, orders.get(0).getStatus());
+        assertEquals(LocalDateTime.of(2024, 1, 2, 10, 15, 30), orders.get(0).getCreatedAt());
+        assertEquals(OrderStatus.NOWE, orders.get(1).getStatus());
+        assertNotNull(orders.get(1).getCreatedAt());
+        assertEquals(List.of("Gear", "Chain", "Pedal"), orders.get(2).getProducts());
+        assertEquals(0L, orders.get(2).getVersion());
+        assertEquals(startedCount + 1, orderService.getStatusCounts().get(OrderStatus.NOWE));
+
+        // orders created through JPA afterwards take ids from the same sequence without colliding
+        Order created = orderService.createOrder(newOrder(10, "Saddle"));
+        assertTrue(orders.stream().noneMatch(order -> order.getId().equals(created.getId())));
+        assertEquals(4, csvOrders().size());
+    }
+
+    @Test
+    void testImportNdjson_ResumesAfterCheckpointAndSkipsCompletedFile() throws IOException {
+        String committed = """
+                {"customerId": 21, "products": ["A"]}
+                {"customerId": 22, "products": ["B"]}
+                """;
+        Path file = write("orders.ndjson", committed + """
+                {"customerId": 23, "products": ["C", "D"], "status": "ANULOWANE"}
+                {"customerId": 24, "products": ["E"], "createdAt": "2023-05-06T07:08:09"}
+                """);
+        OrderImportCheckpoint checkpoint = new OrderImportCheckpoint("orders.ndjson", Files.size(file));
+        checkpoint.setCommittedBytes(committed.getBytes(StandardCharsets.UTF_8).length);
+        checkpoint.setImportedRows(2);
+        checkpoints.save(checkpoint);
+
+        OrderImportResult result = importer.importFile("orders.ndjson", false);
+
+        assertEquals(2, result.importedThisRun());
+        assertEquals(4, result.importedRows());
+        assertEquals(checkpoint.getCommittedBytes(), result.resumedFromByte());
+        List<Integer> customers = orderService.getOrders(Optional.empty(), Optional.empty()).stream()
+                .map(Order::getCustomerId)
+                .filter(customer -> customer > 20 && customer < 1000)
+                .sorted()
+                .toList();
+        assertEquals(List.of(23, 24), customers);
+
+        OrderImportResult again = importer.importFile("orders.ndjson", false);
+        assertEquals(0, again.importedThisRun());
+        assertEquals(Files.size(file), again.resumedFromByte());
+    }
+
+    @Test
+    void testImportFile_RejectsChangedFilesAndPathsOutsideTheDirectory() throws IOException {
+        write("changed.ndjson", "{\"customerId\": 31, \"products\": [\"A\"]}\n");
+        importer.importFile("changed.ndjson", false);
+        write("changed.ndjson", """
+                {"customerId": 31, "products": ["A"]}
+                {"customerId": 32, "products": ["B"]}
+                """);
+
+        assertThrows(IllegalStateException.class, () -> importer.importFile("changed.ndjson", false));
+        assertEquals(2, importer.importFile("changed.ndjson", true).importedRows());
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile("../outside.csv", false));
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile("orders.xml", false));
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void testImportFile_AlongsideCreateOrder_IdsNeverCollide() throws Exception {
+        // a fresh context, so that both start on the sequence's first blocks
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            lines.append("{\"customerId\": ").append(1000 + i).append(", \"products\": [\"A\"]}\n");
+        }
+        write("concurrent.ndjson", lines.toString());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<OrderImportResult> imported = executor.submit(() -> importer.importFile("concurrent.ndjson", false));
+            for (int i = 0; i < 100; i++) {
+                orderService.createOrder(newOrder(2000, "B"));
+            }
+
+            OrderImportResult result = imported.get(30, TimeUnit.SECONDS);
+            assertEquals(300, result.importedRows());
+            assertEquals(0, result.rejectedRows());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(400, orderService.getOrders(Optional.empty(), Optional.empty()).size());
+    }
+
+    private List<Order> csvOrders() {
+        return orderService.getOrders(Optional.empty(), Optional.empty()).stream()
+                .filter(order -> order.getCustomerId() < 20)
+                .sorted(Comparator.comparing(Order::getCustomerId))
+                .toList();
+    }
+
+    private static Path write(String name, String content) throws IOException {
+        return Files.writeString(importDirectory.resolve(name), content);
+    }
+
+    private static Order newOrder(int customerId, String... products) {
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        order.setProducts(new ArrayList<>(List.of(products)));
+        return order;
+    }
+}
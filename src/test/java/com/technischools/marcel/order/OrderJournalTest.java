@@ -0,0 +1,144 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.ColumnarOrderRepository;
+import com.technischools.marcel.order.repository.OrderJournal;
+import com.technischools.marcel.order.repository.OrderJournalProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class OrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<OrderJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (OrderJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void testRestart_RestoresSavedUpdatedAndDeletedOrders() throws Exception {
+        ColumnarOrderRepository repository = open(Long.MAX_VALUE);
+        Order first = repository.save(newOrder(1, OrderStatus.NOWE, "A", "B"));
+        Order second = repository.save(newOrder(2, OrderStatus.NOWE, "C"));
+        Order third = repository.save(newOrder(3, OrderStatus.NOWE));
+        first.setStatus(OrderStatus.W_TRAKCIE);
+        repository.save(first);
+        repository.insertProduct(second.getId(), "D");
+        repository.deleteById(third.getId());
+        restart();
+
+        ColumnarOrderRepository restored = open(Long.MAX_VALUE);
+
+        assertEquals(2, restored.count());
+        Order restoredFirst = restored.findById(first.getId()).orElseThrow();
+        assertEquals(OrderStatus.W_TRAKCIE, restoredFirst.getStatus());
+        assertEquals(List.of("A", "B"), restoredFirst.getProducts());
+        assertEquals(1L, restoredFirst.getVersion());
+        assertEquals(first.getCreatedAt(), restoredFirst.getCreatedAt());
+        assertEquals(List.of("C", "D"), restored.findById(second.getId()).orElseThrow().getProducts());
+        assertFalse(restored.existsById(third.getId()));
+        // ids of deleted orders are not reused
+        assertEquals(4L, restored.save(newOrder(4, OrderStatus.NOWE)).getId());
+    }
+
+    @Test
+    void testRestart_TornTail_IgnoresIncompleteRecord() throws Exception {
+        ColumnarOrderRepository repository = open(Long.MAX_VALUE);
+        repository.save(newOrder(1, OrderStatus.NOWE, "A"));
+        repository.save(newOrder(2, OrderStatus.NOWE, "B"));
+        restart();
+        Path segment = files("journal-").getLast();
+        // a record header promising more bytes than were written before the crash
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 1, 0}, StandardOpenOption.APPEND);
+
+        ColumnarOrderRepository restored = open(Long.MAX_VALUE);
+
+        assertEquals(2, restored.count());
+        assertEquals(3L, restored.save(newOrder(3, OrderStatus.NOWE)).getId());
+        restart();
+        assertEquals(3, open(Long.MAX_VALUE).count());
+    }
+
+    @Test
+    void testSnapshot_CompactsOlderSegments() throws Exception {
+        ColumnarOrderRepository repository = open(10);
+        for (int i = 0; i < 25; i++) {
+            repository.save(newOrder(i, OrderStatus.NOWE, "P" + i));
+        }
+        repository.deleteById(25L);
+        awaitSnapshot();
+        restart();
+
+        ColumnarOrderRepository restored = open(Long.MAX_VALUE);
+
+        assertEquals(24, restored.count());
+        assertEquals(List.of("P0"), restored.findById(1L).orElseThrow().getProducts());
+        assertEquals(26L, restored.save(newOrder(0, OrderStatus.NOWE)).getId());
+        long snapshot = number(files("snapshot-").getLast());
+        assertTrue(files("journal-").stream().allMatch(segment -> number(segment) >= snapshot));
+    }
+
+    private ColumnarOrderRepository open(long snapshotEveryRecords) {
+        OrderJournal journal = new OrderJournal(
+                new OrderJournalProperties(directory, snapshotEveryRecords, Duration.ofHours(1), 16));
+        journals.add(journal);
+        return new ColumnarOrderRepository(
+                new StaticListableBeanFactory(Map.of("orderJournal", journal)).getBeanProvider(OrderJournal.class));
+    }
+
+    private void restart() throws InterruptedException {
+        tearDown();
+        journals.clear();
+    }
+
+    private void awaitSnapshot() throws Exception {
+        for (int i = 0; i < 100 && files("snapshot-").isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(files("snapshot-").isEmpty());
+    }
+
+    private List<Path> files(String prefix) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                    .sorted((a, b) -> Long.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+
+    private static long number(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.indexOf('.')));
+    }
+
+    private static Order newOrder(int customerId, OrderStatus status, String... products) {
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        order.setStatus(status);
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 0).plusMinutes(customerId));
+        order.setProducts(new ArrayList<>(List.of(products)));
+        return order;
+    }
+}
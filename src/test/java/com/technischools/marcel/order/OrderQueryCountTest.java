@@ -0,0 +1,104 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrderService.class, OrderCache.class, OrderStatusCounter.class, OrderWatermark.class,
+        OrderChangeFeed.class, OrderArchive.class})
+@EnableConfigurationProperties({OrderCacheProperties.class, OrderChangeFeedProperties.class})
+class OrderQueryCountTest {
+    private static final int ORDER_COUNT = 250;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order();
+            order.setCustomerId(i);
+            order.setStatus(i % 2 == 0 ? OrderStatus.NOWE : OrderStatus.W_TRAKCIE);
+            order.setCreatedAt(LocalDateTime.now());
+            order.setProducts(List.of("Product" + i, "Product" + (i + 1)));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void testGetOrders_All_FetchesProductsInSingleQuery() {
+        List<Order> orders = orderService.getOrders(Optional.empty(), Optional.empty());
+        orders.forEach(order -> order.getProducts().size());
+
+        assertEquals(ORDER_COUNT, orders.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testGetOrders_ByStatus_FetchesProductsInSingleQuery() {
+        List<Order> orders = orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE));
+        orders.forEach(order -> order.getProducts().size());
+
+        assertEquals(ORDER_COUNT / 2, orders.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testGetOrders_Page_BatchLoadsProducts() {
+        List<Order> orders = orderService.getOrders(Optional.empty(), Optional.empty(), ORDER_COUNT);
+        orders.forEach(order -> order.getProducts().size());
+
+        assertEquals(ORDER_COUNT, orders.size());
+        // one page query plus one collection query per 100 orders
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(ORDER_COUNT, statistics.getCollectionLoadCount());
+    }
+
+    @Test
+    void testExportOrders_BatchLoadsProducts() {
+        List<List<String>> products = new ArrayList<>();
+        orderService.exportOrders(Optional.empty(), order -> products.add(order.getProducts()));
+
+        assertEquals(ORDER_COUNT, products.size());
+        assertEquals(List.of("Product0", "Product1"), products.getFirst());
+        // one cursor query plus one collection query per 100 orders
+        assertEquals(4, statistics.getPrepareStatementCount());
+        assertEquals(ORDER_COUNT, statistics.getCollectionLoadCount());
+    }
+}
@@ -4,27 +4,76 @@ import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.model.OrderChangeEvent;
+import com.technischools.marcel.order.model.OrderCursor;
 import com.technischools.marcel.order.model.OrderStatus;
-import com.technischools.marcel.order.repository.OrderRepository;
+import com.technischools.marcel.order.model.OrderTimeBucket;
+import com.technischools.marcel.order.model.StatusTransitionResult;
+import com.technischools.marcel.order.repository.OrderStore;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
 import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @ExtendWith(MockitoExtension.class)
 public class OrderServiceTest {
 
     @Mock
-    private OrderRepository orderRepository;
+    private OrderStore orderStore;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private OrderStatusCounter statusCounter;
+
+    @Spy
+    private OrderCache orderCache = new OrderCache(new OrderCacheProperties(true, 100, Duration.ofMinutes(5)));
+
+    @Spy
+    private OrderWatermark watermark = new OrderWatermark();
+
+    @Mock
+    private OrderChangeFeed changeFeed;
+
+    @Mock
+    private OrderArchive archive;
 
     @InjectMocks
     private OrderService orderService;
@@ -43,7 +92,7 @@ public class OrderServiceTest {
     @Test
     void testCreateOrder_WithNullValues_SetsDefaults() {
         Order order = new Order(); // Empty order (null values)
-        when(orderRepository.save(any(Order.class))).thenReturn(sampleOrder);
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
 
         Order createdOrder = orderService.createOrder(order);
 
@@ -51,7 +100,38 @@ public class OrderServiceTest {
         assertEquals(OrderStatus.NOWE, createdOrder.getStatus());
         assertNotNull(createdOrder.getCreatedAt());
 
-        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(orderStore, times(1)).save(any(Order.class));
+        verify(statusCounter, times(1)).add(OrderStatus.NOWE, 1);
+        verify(changeFeed, times(1)).publish(OrderChangeEvent.Type.CREATED, 1L, OrderStatus.NOWE, null);
+    }
+
+    @Test
+    void testCreateOrder_AdvancesListVersionTag() {
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
+        String before = orderService.getOrdersVersionTag();
+
+        orderService.createOrder(new Order());
+
+        assertNotEquals(before, orderService.getOrdersVersionTag());
+    }
+
+    @Test
+    void testGetOrderVersionTag_ReadsVersionColumnOnCacheMiss() {
+        when(orderStore.findVersionById(1L)).thenReturn(Optional.of(3L));
+        sampleOrder.setVersion(3L);
+
+        assertEquals(Optional.of(orderService.versionTag(sampleOrder)), orderService.getOrderVersionTag(1L));
+        verify(orderStore, never()).findWithProductsById(any());
+    }
+
+    @Test
+    void testGetOrderVersionTag_CachedOrder_NoQuery() {
+        sampleOrder.setVersion(2L);
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+        orderService.getOrders(Optional.of(1L), Optional.empty());
+
+        assertEquals(Optional.of(orderService.versionTag(sampleOrder)), orderService.getOrderVersionTag(1L));
+        verify(orderStore, never()).findVersionById(any());
     }
 
     @Test
@@ -60,7 +140,7 @@ public class OrderServiceTest {
         order.setStatus(OrderStatus.W_TRAKCIE);
         order.setCreatedAt(LocalDateTime.of(2023, 1, 1, 10, 0));
 
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
+        when(orderStore.save(any(Order.class))).thenReturn(order);
 
         Order createdOrder = orderService.createOrder(order);
 
@@ -68,7 +148,121 @@ public class OrderServiceTest {
         assertEquals(OrderStatus.W_TRAKCIE, createdOrder.getStatus());
         assertEquals(LocalDateTime.of(2023, 1, 1, 10, 0), createdOrder.getCreatedAt());
 
-        verify(orderRepository, times(1)).save(order);
+        verify(orderStore, times(1)).save(order);
+    }
+
+    @Test
+    void testCreateOrders_SetsDefaultsAndReportsInvalidOrders() {
+        Order valid = new Order();
+        valid.setCustomerId(1001);
+        valid.setProducts(List.of("Product1"));
+        Order invalid = new Order();
+        when(orderStore.saveAll(any())).thenAnswer(invocation -> {
+            List<Order> saved = invocation.getArgument(0);
+            saved.forEach(order -> order.setId(7L));
+            return saved;
+        });
+
+        List<OrderBatchResult> results = orderService.createOrders(List.of(valid, invalid));
+
+        assertEquals(List.of(OrderBatchResult.created(0, 7L), OrderBatchResult.failed(1, "Invalid order data")), results);
+        assertEquals(OrderStatus.NOWE, valid.getStatus());
+        assertNotNull(valid.getCreatedAt());
+        verify(entityManager, times(1)).flush();
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testCreateOrders_FailedChunk_ReportsEveryOrderInChunk() {
+        sampleOrder.setCustomerId(1001);
+        when(orderStore.saveAll(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        List<OrderBatchResult> results = orderService.createOrders(List.of(sampleOrder));
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).created());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void testGetOrders_ConcurrentIdenticalReads_ShareOneQuery() throws Exception {
+        int callers = 16;
+        CountDownLatch started = new CountDownLatch(callers);
+        when(orderStore.findByStatus(OrderStatus.NOWE)).thenAnswer(invocation -> {
+            started.await(5, TimeUnit.SECONDS);
+            // give the remaining callers time to join the running load
+            Thread.sleep(200);
+            return List.of(sampleOrder);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<Order>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    started.countDown();
+                    return orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE));
+                }));
+            }
+            for (Future<List<Order>> result : results) {
+                assertEquals(List.of(1L), result.get(5, TimeUnit.SECONDS).stream().map(Order::getId).toList());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(orderStore, times(1)).findByStatus(OrderStatus.NOWE);
+
+        // the shared load is gone once it completed
+        orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE));
+        verify(orderStore, times(2)).findByStatus(OrderStatus.NOWE);
+    }
+
+    @Test
+    void testGetOrders_SharedLoad_ChangesStayWithCaller() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(orderStore.findByStatus(OrderStatus.NOWE)).thenAnswer(invocation -> {
+            bothStarted.await(5, TimeUnit.SECONDS);
+            Thread.sleep(200);
+            return List.of(sampleOrder);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<List<Order>>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> {
+                    bothStarted.countDown();
+                    return orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE));
+                }));
+            }
+            Order first = results.get(0).get(5, TimeUnit.SECONDS).getFirst();
+            Order second = results.get(1).get(5, TimeUnit.SECONDS).getFirst();
+
+            first.setStatus(OrderStatus.ANULOWANE);
+            first.getProducts().add("Product3");
+
+            assertNotSame(first, second);
+            assertEquals(OrderStatus.NOWE, second.getStatus());
+            assertEquals(List.of("Product1", "Product2"), second.getProducts());
+            assertEquals(OrderStatus.NOWE, sampleOrder.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(orderStore, times(1)).findByStatus(OrderStatus.NOWE);
+    }
+
+    @Test
+    void testGetOrders_ReadAfterWrite_DoesNotShareOlderLoad() {
+        when(orderStore.findByStatus(OrderStatus.NOWE)).thenAnswer(invocation -> {
+            // a write commits while the first load runs, a read started now must load again
+            watermark.advance();
+            if (mockingDetails(orderStore).getInvocations().size() == 1) {
+                assertEquals(List.of(), orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE)));
+            }
+            return List.of();
+        });
+
+        orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.NOWE));
+
+        verify(orderStore, times(2)).findByStatus(OrderStatus.NOWE);
     }
 
     @Test
@@ -79,29 +273,106 @@ public class OrderServiceTest {
         order2.setCreatedAt(LocalDateTime.now());
         order2.setProducts(List.of("Product3"));
 
-        when(orderRepository.findAll()).thenReturn(List.of(sampleOrder, order2));
+        when(orderStore.findByStatus(OrderStatus.W_TRAKCIE)).thenReturn(List.of(order2));
 
         List<Order> result = orderService.getOrders(Optional.empty(), Optional.of(OrderStatus.W_TRAKCIE));
 
         assertEquals(1, result.size());
         assertEquals(OrderStatus.W_TRAKCIE, result.get(0).getStatus());
 
-        verify(orderRepository, times(1)).findAll();
+        verify(orderStore, times(1)).findByStatus(OrderStatus.W_TRAKCIE);
+        verify(orderStore, never()).findAll();
+    }
+
+    @Test
+    void testGetOrders_Page_StartsFromCursor() {
+        when(orderStore.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10))).thenReturn(List.of(sampleOrder));
+
+        List<Order> result = orderService.getOrders(Optional.empty(), Optional.empty(), 10);
+
+        assertEquals(1, result.size());
+        verify(orderStore, times(1)).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10));
+    }
+
+    @Test
+    void testGetOrders_PageByStatus_ClampsLimit() {
+        when(orderStore.findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus.NOWE, 1L, Limit.of(OrderService.MAX_PAGE_SIZE)))
+                .thenReturn(List.of());
+
+        List<Order> result = orderService.getOrders(Optional.of(OrderStatus.NOWE), Optional.of(1L), 5000);
+
+        assertTrue(result.isEmpty());
+        verify(orderStore, times(1))
+                .findByStatusAndIdGreaterThanOrderByIdAsc(OrderStatus.NOWE, 1L, Limit.of(OrderService.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void testGetCustomerOrders_WithCursor_ContinuesBeforeCursor() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 31, 12, 30);
+        when(orderStore.findCustomerHistoryBefore(1001, OrderStatus.NOWE, createdAt, 5L, Limit.of(20)))
+                .thenReturn(List.of(sampleOrder));
+
+        List<Order> result = orderService.getCustomerOrders(1001, Optional.of(OrderStatus.NOWE),
+                Optional.of(new OrderCursor(createdAt, 5L)), 20);
+
+        assertEquals(List.of(sampleOrder), result);
+        verify(orderStore, never()).findCustomerHistory(any(), any(), any());
+    }
+
+    @Test
+    void testGetOrderHistogram_ByDay_SortsDatabaseBuckets() {
+        LocalDateTime from = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 4, 1, 0, 0);
+        OrderTimeBucket later = new OrderTimeBucket(LocalDateTime.of(2024, 3, 2, 0, 0), OrderStatus.NOWE, 3);
+        OrderTimeBucket earlierDone = new OrderTimeBucket(LocalDateTime.of(2024, 3, 1, 0, 0), OrderStatus.ZAKONCZONE, 1);
+        OrderTimeBucket earlierNew = new OrderTimeBucket(LocalDateTime.of(2024, 3, 1, 0, 0), OrderStatus.NOWE, 2);
+        when(orderStore.countPerDayAndStatus(from, to)).thenReturn(List.of(later, earlierDone, earlierNew));
+
+        List<OrderTimeBucket> result = orderService.getOrderHistogram(from, to, ChronoUnit.DAYS);
+
+        assertEquals(List.of(earlierNew, earlierDone, later), result);
+        verify(orderStore, never()).countPerHourAndStatus(any(), any());
+        verify(orderStore, never()).findAll();
+    }
+
+    @Test
+    void testGetOrdersByProducts_MatchAll_DeduplicatesProducts() {
+        when(orderStore.findContainingAllProducts(Set.of("Product1", "Product2"), 2L, 0L, Limit.of(10)))
+                .thenReturn(List.of(sampleOrder));
+
+        List<Order> result = orderService.getOrdersByProducts(
+                List.of("Product1", "Product2", "Product1"), true, Optional.empty(), 10);
+
+        assertEquals(List.of(sampleOrder), result);
+        verify(orderStore, never()).findContainingAnyProduct(any(), any(), any());
     }
 
     @Test
     void testGetOrders_NonExistingId_ReturnsEmptyList() {
-        when(orderRepository.findById(99L)).thenReturn(Optional.empty());
+        when(orderStore.findWithProductsById(99L)).thenReturn(Optional.empty());
 
         List<Order> result = orderService.getOrders(Optional.of(99L), Optional.empty());
 
         assertTrue(result.isEmpty());
-        verify(orderRepository, times(1)).findById(99L);
+        verify(orderStore, times(1)).findWithProductsById(99L);
+    }
+
+    @Test
+    void testGetOrders_ArchivedId_FallsBackToArchive() {
+        sampleOrder.setStatus(OrderStatus.ZAKONCZONE);
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.empty());
+        when(archive.find(1L)).thenReturn(Optional.of(sampleOrder));
+
+        assertEquals(1L, orderService.getOrders(Optional.of(1L), Optional.empty()).getFirst().getId());
+        // archived orders are cached like live ones
+        assertEquals(1L, orderService.getOrders(Optional.of(1L), Optional.empty()).getFirst().getId());
+
+        verify(archive, times(1)).find(1L);
     }
 
     @Test
     void testGetOrders_ByIdAndStatus_MatchingStatus_ReturnsOrder() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
 
         List<Order> result = orderService.getOrders(Optional.of(1L), Optional.of(OrderStatus.NOWE));
 
@@ -109,73 +380,373 @@ public class OrderServiceTest {
         assertEquals(1L, result.get(0).getId());
         assertEquals(OrderStatus.NOWE, result.get(0).getStatus());
 
-        verify(orderRepository, times(1)).findById(1L);
+        verify(orderStore, times(1)).findWithProductsById(1L);
     }
 
     @Test
     void testGetOrders_ByIdAndStatus_NonMatchingStatus_ReturnsEmptyList() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
 
         List<Order> result = orderService.getOrders(Optional.of(1L), Optional.of(OrderStatus.ZAKONCZONE));
 
         assertTrue(result.isEmpty());
-        verify(orderRepository, times(1)).findById(1L);
+        verify(orderStore, times(1)).findWithProductsById(1L);
+    }
+
+    @Test
+    void testExportOrders_ByStatus_StreamsAndDetachesEachOrder() {
+        when(orderStore.streamByStatusOrderByIdAsc(OrderStatus.NOWE)).thenReturn(Stream.of(sampleOrder));
+        List<Order> exported = new ArrayList<>();
+
+        orderService.exportOrders(Optional.of(OrderStatus.NOWE), exported::add);
+
+        assertEquals(List.of(sampleOrder), exported);
+        verify(entityManager, times(1)).detach(sampleOrder);
+        verify(orderStore, never()).streamAllByOrderByIdAsc();
+    }
+
+    @Test
+    void testGetOrders_ById_SecondLookupServedFromCache() {
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        orderService.getOrders(Optional.of(1L), Optional.empty());
+        List<Order> result = orderService.getOrders(Optional.of(1L), Optional.empty());
+
+        assertEquals(1, result.size());
+        assertEquals(sampleOrder.getId(), result.getFirst().getId());
+        assertEquals(sampleOrder.getProducts(), result.getFirst().getProducts());
+        verify(orderStore, times(1)).findWithProductsById(1L);
+        assertEquals(1, orderService.getCacheStats().hitCount());
+    }
+
+    @Test
+    void testGetOrders_ById_CachesCopyOfLoadedEntity() {
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        Order cached = orderService.getOrders(Optional.of(1L), Optional.empty()).getFirst();
+        sampleOrder.setStatus(OrderStatus.ANULOWANE);
+
+        assertNotSame(sampleOrder, cached);
+        assertEquals(OrderStatus.NOWE, orderService.getOrders(Optional.of(1L), Optional.empty()).getFirst().getStatus());
+    }
+
+    @Test
+    void testPatchOrder_EvictsCachedOrder() {
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
+
+        orderService.getOrders(Optional.of(1L), Optional.empty());
+        orderService.patchOrder(1L, Optional.of(OrderStatus.W_TRAKCIE), Optional.empty());
+        orderService.getOrders(Optional.of(1L), Optional.empty());
+
+        verify(orderCache, times(1)).evict(1L);
+        verify(orderStore, times(2)).findWithProductsById(1L);
     }
 
     @Test
     void testPatchOrder_UpdateOnlyStatus() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(sampleOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(sampleOrder);
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
 
-        Order patchedOrder = orderService.patchOrder(1L, Optional.of(OrderStatus.ZAKONCZONE), Optional.empty());
+        Order patchedOrder = orderService.patchOrder(1L, Optional.of(OrderStatus.W_TRAKCIE), Optional.empty());
 
-        assertEquals(OrderStatus.ZAKONCZONE, patchedOrder.getStatus());
+        assertEquals(OrderStatus.W_TRAKCIE, patchedOrder.getStatus());
         assertEquals(2, patchedOrder.getProducts().size()); // Products remain unchanged
+        verify(statusCounter, times(1)).moved(OrderStatus.NOWE, OrderStatus.W_TRAKCIE, 1);
 
-        verify(orderRepository, times(1)).save(sampleOrder);
+        verify(orderStore, times(1)).save(sampleOrder);
     }
 
     @Test
-    void testPatchOrder_UpdateOnlyProducts() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(sampleOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(sampleOrder);
+    void testPatchOrder_TransitionNotAllowed_Throws() {
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        assertThrows(IllegalStateException.class,
+                () -> orderService.patchOrder(1L, Optional.of(OrderStatus.ZAKONCZONE), Optional.empty()));
+
+        assertEquals(OrderStatus.NOWE, sampleOrder.getStatus());
+        verify(orderStore, never()).save(any(Order.class));
+        verifyNoInteractions(statusCounter, changeFeed);
+    }
+
+    @Test
+    void testPatchOrder_ProductsWithTransitionNotAllowed_WritesNoProducts() {
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findStatusById(1L)).thenReturn(Optional.of(OrderStatus.NOWE));
 
+        assertThrows(IllegalStateException.class, () -> orderService.patchOrder(
+                1L, Optional.of(OrderStatus.ZAKONCZONE), Optional.of(List.of("New Product A"))));
+
+        verify(orderStore, never()).incrementVersion(any());
+        verify(orderStore, never()).deleteProducts(any(), any());
+        verify(orderStore, never()).insertProduct(any(), any());
+        verify(orderStore, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testPatchOrder_UpdateOnlyProducts() {
         List<String> newProducts = List.of("New Product A", "New Product B");
+        Order reloaded = new Order();
+        reloaded.setId(1L);
+        reloaded.setStatus(OrderStatus.NOWE);
+        reloaded.setProducts(new ArrayList<>(newProducts));
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findProductsById(1L)).thenReturn(List.of("Product1", "Product2"));
+        when(orderStore.incrementVersion(1L)).thenReturn(1);
+        when(orderStore.findById(1L)).thenReturn(Optional.of(reloaded));
+        when(orderStore.save(any(Order.class))).thenReturn(reloaded);
+
         Order patchedOrder = orderService.patchOrder(1L, Optional.empty(), Optional.of(newProducts));
 
         assertEquals(OrderStatus.NOWE, patchedOrder.getStatus()); // Status remains unchanged
-        assertEquals(2, patchedOrder.getProducts().size());
-        assertEquals("New Product A", patchedOrder.getProducts().get(0));
+        assertEquals(newProducts, patchedOrder.getProducts());
+        // the stored products are diffed only once the row is locked, and the order is read after the changes
+        InOrder inOrder = inOrder(orderStore);
+        inOrder.verify(orderStore).lockById(1L);
+        inOrder.verify(orderStore).findProductsById(1L);
+        inOrder.verify(orderStore).incrementVersion(1L);
+        inOrder.verify(orderStore).deleteProducts(1L, Set.of("Product1", "Product2"));
+        inOrder.verify(orderStore).insertProduct(1L, "New Product A");
+        inOrder.verify(orderStore).insertProduct(1L, "New Product B");
+        inOrder.verify(orderStore).findById(1L);
+        verify(changeFeed, times(1)).publish(OrderChangeEvent.Type.UPDATED, 1L, OrderStatus.NOWE, OrderStatus.NOWE);
+        verify(orderStore, times(1)).save(reloaded);
+    }
+
+    @Test
+    void testPatchOrder_ReplaceProducts_WritesOnlyDifference() {
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findProductsById(1L)).thenReturn(List.of("Product1", "Product2", "Product2", "Product3"));
+        when(orderStore.incrementVersion(1L)).thenReturn(1);
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
+
+        orderService.patchOrder(1L, Optional.empty(), Optional.of(List.of("Product1", "Product2", "Product3", "Product4")));
+
+        verify(orderStore, times(1)).deleteProducts(1L, Set.of("Product2"));
+        verify(orderStore, times(1)).insertProduct(1L, "Product2");
+        verify(orderStore, times(1)).insertProduct(1L, "Product4");
+        verify(orderStore, times(2)).insertProduct(eq(1L), anyString());
+    }
+
+    @Test
+    void testPatchOrder_SameProducts_WritesNothing() {
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findProductsById(1L)).thenReturn(List.of("Product1", "Product2"));
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+        when(orderStore.save(any(Order.class))).thenReturn(sampleOrder);
+
+        orderService.patchOrder(1L, Optional.empty(), Optional.of(List.of("Product2", "Product1")));
+
+        verify(orderStore, never()).incrementVersion(any());
+        verify(orderStore, never()).deleteProducts(any(), any());
+        verify(orderStore, never()).insertProduct(any(), any());
+    }
+
+    @Test
+    void testAddProducts_InsertsOnlyNewRows() {
+        when(orderStore.incrementVersion(1L)).thenReturn(1);
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        assertSame(sampleOrder, orderService.addProducts(1L, List.of("Product3")));
+
+        verify(orderStore, times(1)).insertProduct(1L, "Product3");
+        verify(orderStore, never()).deleteProducts(any(), any());
+        verify(orderCache, times(1)).evict(1L);
+    }
+
+    @Test
+    void testAddProducts_EmptyList_LeavesVersion() {
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
 
-        verify(orderRepository, times(1)).save(sampleOrder);
+        assertSame(sampleOrder, orderService.addProducts(1L, List.of()));
+
+        verify(orderStore, never()).incrementVersion(any());
+        verify(watermark, never()).advance();
+        verifyNoInteractions(changeFeed);
+    }
+
+    @Test
+    void testRemoveProducts_OrderNotFound_ReturnsNull() {
+        assertNull(orderService.removeProducts(99L, List.of("Product1")));
+
+        verify(orderStore, never()).incrementVersion(any());
+        verify(orderStore, never()).deleteProducts(any(), any());
+    }
+
+    @Test
+    void testRemoveProducts_DeletesAndBumpsVersion() {
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findProductsById(1L)).thenReturn(List.of("Product1", "Product2"));
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        assertSame(sampleOrder, orderService.removeProducts(1L, List.of("Product1", "Product9")));
+
+        verify(orderStore, times(1)).incrementVersion(1L);
+        verify(orderStore, times(1)).deleteProducts(1L, Set.of("Product1", "Product9"));
+        verify(changeFeed, times(1)).publish(OrderChangeEvent.Type.UPDATED, 1L, OrderStatus.NOWE, OrderStatus.NOWE);
+    }
+
+    @Test
+    void testRemoveProducts_NothingRemoved_LeavesVersion() {
+        when(orderStore.lockById(1L)).thenReturn(Optional.of(1L));
+        when(orderStore.findProductsById(1L)).thenReturn(List.of("Product1", "Product2"));
+        when(orderStore.findWithProductsById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        assertSame(sampleOrder, orderService.removeProducts(1L, List.of("Product9")));
+
+        verify(orderStore, never()).incrementVersion(any());
+        verify(orderStore, never()).deleteProducts(any(), any());
+        verify(watermark, never()).advance();
+        verifyNoInteractions(changeFeed);
+    }
+
+    @Test
+    void testTransitionStatus_ExpectedStatus_UpdatesWithoutLoading() {
+        when(orderStore.compareAndSetStatus(1L, OrderStatus.NOWE, OrderStatus.W_TRAKCIE)).thenReturn(1);
+
+        assertEquals(StatusTransitionResult.UPDATED,
+                orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.W_TRAKCIE));
+
+        verify(orderStore, never()).findById(any());
+        verify(orderCache).evict(1L);
+        verify(statusCounter).moved(OrderStatus.NOWE, OrderStatus.W_TRAKCIE, 1);
+    }
+
+    @Test
+    void testTransitionStatus_StatusChanged_ReturnsConflict() {
+        when(orderStore.compareAndSetStatus(1L, OrderStatus.NOWE, OrderStatus.ANULOWANE)).thenReturn(0);
+        when(orderStore.existsById(1L)).thenReturn(true);
+
+        assertEquals(StatusTransitionResult.CONFLICT,
+                orderService.transitionStatus(1L, OrderStatus.NOWE, OrderStatus.ANULOWANE));
+
+        verifyNoInteractions(statusCounter);
+    }
+
+    @Test
+    void testTransitionStatus_FinalStatus_NotAllowed() {
+        assertEquals(StatusTransitionResult.NOT_ALLOWED,
+                orderService.transitionStatus(1L, OrderStatus.ZAKONCZONE, OrderStatus.NOWE));
+
+        verifyNoInteractions(orderStore);
     }
 
     @Test
     void testPatchOrder_OrderNotFound_ReturnsNull() {
-        when(orderRepository.findById(99L)).thenReturn(Optional.empty());
+        when(orderStore.findById(99L)).thenReturn(Optional.empty());
 
         Order result = orderService.patchOrder(99L, Optional.of(OrderStatus.ZAKONCZONE), Optional.empty());
 
         assertNull(result);
-        verify(orderRepository, never()).save(any(Order.class));
+        verify(orderStore, never()).save(any(Order.class));
+    }
+
+    @Test
+    void testUpdateStatus_ByIds_UpdatesInChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1500; id++) {
+            ids.add(id);
+        }
+        when(orderStore.updateStatusByIds(anyCollection(), eq(OrderStatus.W_TRAKCIE), eq(OrderStatus.ZAKONCZONE)))
+                .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+
+        int updated = orderService.updateStatus(ids, OrderStatus.ZAKONCZONE);
+
+        assertEquals(1500, updated);
+        verify(statusCounter, times(1)).moved(OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE, 1000);
+        verify(statusCounter, times(1)).moved(OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE, 500);
+        verify(statusCounter, never()).reconcile();
+        verify(orderStore, times(2)).updateStatusByIds(anyCollection(), eq(OrderStatus.W_TRAKCIE),
+                eq(OrderStatus.ZAKONCZONE));
+        verify(orderStore, never()).findById(anyLong());
+    }
+
+    @Test
+    void testUpdateStatus_ByIds_UpdatesEverySourceStatus() {
+        when(orderStore.updateStatusByIds(List.of(1L, 2L), OrderStatus.NOWE, OrderStatus.ANULOWANE)).thenReturn(1);
+        when(orderStore.updateStatusByIds(List.of(1L, 2L), OrderStatus.W_TRAKCIE, OrderStatus.ANULOWANE)).thenReturn(1);
+
+        assertEquals(2, orderService.updateStatus(List.of(1L, 2L, 1L), OrderStatus.ANULOWANE));
+
+        verify(statusCounter).moved(OrderStatus.NOWE, OrderStatus.ANULOWANE, 1);
+        verify(statusCounter).moved(OrderStatus.W_TRAKCIE, OrderStatus.ANULOWANE, 1);
+    }
+
+    @Test
+    void testUpdateStatus_UnreachableTarget_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> orderService.updateStatus(List.of(1L), OrderStatus.NOWE));
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.updateStatus(OrderStatus.ZAKONCZONE, Optional.empty(), OrderStatus.W_TRAKCIE));
+
+        verifyNoInteractions(orderStore);
+    }
+
+    @Test
+    void testUpdateStatus_ByStatus_WalksKeysetChunks() {
+        LocalDateTime cutoff = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<Long> firstChunk = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            firstChunk.add(id * 3);
+        }
+        List<Long> lastChunk = List.of(5000L, 7000L);
+        when(orderStore.findIdsByStatus(OrderStatus.W_TRAKCIE, cutoff, 0L, Limit.of(1000))).thenReturn(firstChunk);
+        when(orderStore.findIdsByStatus(OrderStatus.W_TRAKCIE, cutoff, 3000L, Limit.of(1000))).thenReturn(lastChunk);
+        when(orderStore.updateStatusByIds(anyCollection(), eq(OrderStatus.W_TRAKCIE), eq(OrderStatus.ZAKONCZONE)))
+                .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+
+        int updated = orderService.updateStatus(OrderStatus.W_TRAKCIE, Optional.of(cutoff), OrderStatus.ZAKONCZONE);
+
+        assertEquals(1002, updated);
+        verify(orderStore).updateStatusByIds(firstChunk, OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE);
+        verify(orderStore).updateStatusByIds(lastChunk, OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE);
+        verify(statusCounter).moved(OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE, 1000);
+        verify(statusCounter).moved(OrderStatus.W_TRAKCIE, OrderStatus.ZAKONCZONE, 2);
+        // the last chunk was short, so no further id query
+        verify(orderStore, times(2)).findIdsByStatus(any(), any(), anyLong(), any());
+        verify(orderCache).evictAll(lastChunk);
+    }
+
+    @Test
+    void testUpdateStatus_ByStatus_NoMatchingOrders_ReturnsZero() {
+        when(orderStore.findIdsByStatus(OrderStatus.W_TRAKCIE, null, 0L, Limit.of(1000))).thenReturn(List.of());
+
+        int updated = orderService.updateStatus(OrderStatus.W_TRAKCIE, Optional.empty(), OrderStatus.ZAKONCZONE);
+
+        assertEquals(0, updated);
+        verify(orderStore, never()).updateStatusByIds(anyCollection(), any(), any());
     }
 
     @Test
     void testDeleteOrder_NonExistingId_NoError() {
-        doNothing().when(orderRepository).deleteById(99L);
+        when(orderStore.findById(99L)).thenReturn(Optional.empty());
 
         assertDoesNotThrow(() -> orderService.deleteOrder(99L));
 
-        verify(orderRepository, times(1)).deleteById(99L);
+        verify(orderStore, never()).delete(any(Order.class));
+        verify(statusCounter, never()).add(any(), anyLong());
+        verifyNoInteractions(changeFeed);
+    }
+
+    @Test
+    void testDeleteOrder_ExistingId_DecrementsStatusCount() {
+        when(orderStore.findById(1L)).thenReturn(Optional.of(sampleOrder));
+
+        orderService.deleteOrder(1L);
+
+        verify(orderStore, times(1)).delete(sampleOrder);
+        verify(statusCounter, times(1)).add(OrderStatus.NOWE, -1);
+        verify(changeFeed, times(1)).publish(OrderChangeEvent.Type.DELETED, 1L, OrderStatus.NOWE, null);
     }
 
     @Test
     void testGetOrders_NoOrders_ReturnsEmptyList() {
-        when(orderRepository.findAll()).thenReturn(Collections.emptyList());
+        when(orderStore.findAll()).thenReturn(Collections.emptyList());
 
         List<Order> result = orderService.getOrders(Optional.empty(), Optional.empty());
 
         assertTrue(result.isEmpty());
-        verify(orderRepository, times(1)).findAll();
+        verify(orderStore, times(1)).findAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.technischools.marcel.order;
+
+import static org.mockito.Mockito.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.model.OrderStatusCount;
+import com.technischools.marcel.order.repository.OrderStore;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderStatusCounterTest {
+
+    @Mock
+    private OrderStore orderStore;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OrderStatusCounter statusCounter;
+
+    @BeforeEach
+    void setUp() {
+        statusCounter = new OrderStatusCounter(orderStore, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testAdd_InsideTransaction_AppliedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        statusCounter.moved(OrderStatus.NOWE, OrderStatus.W_TRAKCIE, 1);
+        assertEquals(0L, statusCounter.getCounts().get(OrderStatus.W_TRAKCIE));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertEquals(-1L, statusCounter.getCounts().get(OrderStatus.NOWE));
+        assertEquals(1L, statusCounter.getCounts().get(OrderStatus.W_TRAKCIE));
+    }
+
+    @Test
+    void testAdd_RolledBackTransaction_NotApplied() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        statusCounter.add(OrderStatus.NOWE, 1);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(0L, statusCounter.getCounts().get(OrderStatus.NOWE));
+    }
+
+    @Test
+    void testReconcile_ReplacesCountsWithDatabaseCounts() {
+        statusCounter.add(OrderStatus.W_TRAKCIE, 3);
+        when(orderStore.countGroupedByStatus()).thenReturn(List.of(new OrderStatusCount(OrderStatus.NOWE, 7)));
+
+        statusCounter.reconcile();
+
+        assertEquals(7L, statusCounter.getCounts().get(OrderStatus.NOWE));
+        assertEquals(0L, statusCounter.getCounts().get(OrderStatus.W_TRAKCIE));
+    }
+}
@@ -0,0 +1,106 @@
+package com.technischools.marcel.order;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.technischools.marcel.order.model.Order;
+import com.technischools.marcel.order.model.OrderBatchResult;
+import com.technischools.marcel.order.model.OrderStatus;
+import com.technischools.marcel.order.repository.OrderRepository;
+import com.technischools.marcel.order.service.OrderArchive;
+import com.technischools.marcel.order.service.OrderCache;
+import com.technischools.marcel.order.service.OrderCacheProperties;
+import com.technischools.marcel.order.service.OrderChangeFeed;
+import com.technischools.marcel.order.service.OrderChangeFeedProperties;
+import com.technischools.marcel.order.service.OrderService;
+import com.technischools.marcel.order.service.OrderStatusCounter;
+import com.technischools.marcel.order.service.OrderWatermark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads race to move the same orders out of NOWE, each thread to its own target status. Every transition runs in
+ * its own committed transaction, so exactly one thread may win per order and all the others must get a conflict.
+ */
+@DataJpaTest
+@Import({OrderService.class, OrderCache.class, OrderStatusCounter.class, OrderWatermark.class,
+        OrderChangeFeed.class, OrderArchive.class})
+@EnableConfigurationProperties({OrderCacheProperties.class, OrderChangeFeedProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatusTransitionConcurrencyTest {
+    private static final int ORDER_COUNT = 200;
+    private static final int THREAD_COUNT = 8;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void testTransitionStatus_ConcurrentTransitions_NoLostUpdates() throws Exception {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order();
+            order.setCustomerId(i);
+            order.setProducts(List.of("Product" + i));
+            orders.add(order);
+        }
+        List<Long> ids = orderService.createOrders(orders).stream().map(OrderBatchResult::id).toList();
+        Map<Long, OrderStatus> winners = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            OrderStatus target = t % 2 == 0 ? OrderStatus.W_TRAKCIE : OrderStatus.ANULOWANE;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (Long id : ids) {
+                    switch (orderService.transitionStatus(id, OrderStatus.NOWE, target)) {
+                        case UPDATED -> assertNull(winners.putIfAbsent(id, target), "second winner for order " + id);
+                        case CONFLICT -> conflicts.incrementAndGet();
+                        default -> fail("unexpected result for order " + id);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(ORDER_COUNT, winners.size());
+        assertEquals(ORDER_COUNT * (THREAD_COUNT - 1), conflicts.get());
+        for (Order order : orderRepository.findAll()) {
+            assertEquals(winners.get(order.getId()), order.getStatus());
+            assertEquals(1L, order.getVersion());
+        }
+        Map<OrderStatus, Long> counted = orderService.getStatusCounts();
+        assertEquals(orderService.reconcileStatusCounts(), counted);
+    }
+}